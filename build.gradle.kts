@@ -13,6 +13,14 @@ repositories {
     maven("https://repo.oraxen.com/releases")
 }
 
+// Benchmarks live in src/jmh/java and see the plugin classes plus everything they compile against
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+        runtimeClasspath += output + compileClasspath
+    }
+}
+
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
@@ -24,12 +32,33 @@ dependencies {
 
     // Corrected Spigot API reference
     compileOnly(files("libs/spigot-api-1.21.1-R0.1-SNAPSHOT-shaded.jar"))
+
+    // JMH benchmarks
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 tasks.test {
     useJUnitPlatform()
 }
 
+// Run the benchmarks with ./gradlew jmh, or a subset with ./gradlew jmh -PjmhInclude=MessageBenchmark
+// Results are written as JSON, named after the version, so runs from different builds can be compared
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks and writes the results as JSON."
+
+    val results = layout.buildDirectory.file("results/jmh/results-${project.version}.json")
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args("-rf", "json", "-rff", results.get().asFile.absolutePath)
+    providers.gradleProperty("jmhInclude").orNull?.let { args(it) }
+
+    outputs.file(results)
+    outputs.upToDateWhen { false }
+    doFirst { results.get().asFile.parentFile.mkdirs() }
+}
+
 // Set Java version
 java {
     toolchain.languageVersion.set(JavaLanguageVersion.of(21)) // Ensure compatibility with Minecraft versions
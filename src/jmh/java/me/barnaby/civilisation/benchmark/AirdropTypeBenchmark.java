@@ -0,0 +1,52 @@
+package me.barnaby.civilisation.benchmark;
+
+import me.barnaby.civilisation.util.WeightedSampler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Airdrop type selection as done by {@code AirdropManager.getRandomAirdropType},
+ * with chances large enough that summing them would overflow an int.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AirdropTypeBenchmark {
+    @Param({"4", "64", "1024"})
+    public int types;
+
+    private WeightedSampler<String> sampler;
+
+    @Setup
+    public void setup() {
+        List<String> names = new ArrayList<>();
+        List<Integer> chances = new ArrayList<>();
+        for (int i = 0; i < types; i++) {
+            names.add("type" + i);
+            chances.add(Integer.MAX_VALUE - i * 1000);
+        }
+        sampler = WeightedSampler.of(names, chances);
+    }
+
+    @Benchmark
+    public String getRandomAirdropType() {
+        return sampler.sample();
+    }
+
+    @Benchmark
+    public WeightedSampler<String> buildSampler() {
+        List<String> names = new ArrayList<>(types);
+        List<Integer> chances = new ArrayList<>(types);
+        for (int i = 0; i < types; i++) {
+            names.add("type" + i);
+            chances.add(Integer.MAX_VALUE - i * 1000);
+        }
+        return WeightedSampler.of(names, chances);
+    }
+}
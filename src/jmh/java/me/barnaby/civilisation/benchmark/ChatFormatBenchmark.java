@@ -0,0 +1,64 @@
+package me.barnaby.civilisation.benchmark;
+
+import me.barnaby.civilisation.config.MessageTemplate;
+import me.barnaby.civilisation.config.PluginState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rank format lookup and chat line formatting, as done for every chat message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatFormatBenchmark {
+    @Param({"5", "50"})
+    public int ranks;
+
+    private PluginState state;
+    private String[] rankNames;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Map<String, String> formats = new HashMap<>();
+        Map<String, MessageTemplate> templates = new HashMap<>();
+        rankNames = new String[ranks];
+        for (int i = 0; i < ranks; i++) {
+            rankNames[i] = "Rank" + i;
+            String format = "&7[&e" + rankNames[i].toLowerCase() + "&7] &f<player>: &7<message>";
+            formats.put(rankNames[i].toLowerCase(), format);
+            // Same mapping as ConfigManager.compileRankFormat
+            templates.put(rankNames[i].toLowerCase(),
+                    MessageTemplate.compile(format.replace("<player>", "{0}").replace("<message>", "{1}")));
+        }
+        state = PluginState.EMPTY.withConfig(Map.of(), formats, templates, 100);
+    }
+
+    @Benchmark
+    public String getRankFormat() {
+        return state.getRankFormat(nextRank());
+    }
+
+    @Benchmark
+    public String formatChatLine() {
+        return state.getRankTemplate(nextRank()).render("Barnaby", "has anyone seen the airdrop near spawn?");
+    }
+
+    @Benchmark
+    public String formatChatLineUnknownRank() {
+        return state.getRankTemplate("unknown").render("Barnaby", "has anyone seen the airdrop near spawn?");
+    }
+
+    private String nextRank() {
+        String rank = rankNames[next];
+        next = next + 1 == rankNames.length ? 0 : next + 1;
+        return rank;
+    }
+}
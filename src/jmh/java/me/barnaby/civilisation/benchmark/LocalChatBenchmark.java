@@ -0,0 +1,78 @@
+package me.barnaby.civilisation.benchmark;
+
+import me.barnaby.civilisation.chat.PlayerGrid;
+import me.barnaby.civilisation.session.SessionSlots;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local chat recipient selection: the player grid against a scan of every online player.
+ * Players are spread evenly over a 2000 x 2000 block area.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalChatBenchmark {
+    private static final double DISTANCE = 100;
+    private static final int AREA = 2000;
+
+    @Param({"100", "1000"})
+    public int players;
+
+    private PlayerGrid grid;
+    private Player[] online;
+    private int next;
+
+    @Setup
+    public void setup() {
+        World world = Stubs.world("world");
+        SessionSlots sessionSlots = new SessionSlots(players);
+        grid = new PlayerGrid(sessionSlots);
+        online = new Player[players];
+
+        Random random = new Random(42);
+        for (int i = 0; i < players; i++) {
+            Location location = new Location(world, random.nextInt(AREA) - AREA / 2.0, 64, random.nextInt(AREA) - AREA / 2.0);
+            online[i] = Stubs.player("Player" + i, location);
+            sessionSlots.allocate(online[i]);
+            grid.track(online[i]);
+        }
+    }
+
+    @Benchmark
+    public List<Player> playerGrid() {
+        return grid.getNearby(nextPlayer(), DISTANCE);
+    }
+
+    /**
+     * The approach the grid replaced: check the distance to every online player.
+     */
+    @Benchmark
+    public List<Player> scanAllPlayers() {
+        Player centre = nextPlayer();
+        Location origin = centre.getLocation();
+        List<Player> nearby = new ArrayList<>();
+        for (Player player : online) {
+            if (player.getWorld().equals(centre.getWorld()) && player.getLocation().distance(origin) <= DISTANCE) {
+                nearby.add(player);
+            }
+        }
+        return nearby;
+    }
+
+    private Player nextPlayer() {
+        Player player = online[next];
+        next = next + 1 == online.length ? 0 : next + 1;
+        return player;
+    }
+}
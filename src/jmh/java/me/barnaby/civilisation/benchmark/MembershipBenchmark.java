@@ -0,0 +1,127 @@
+package me.barnaby.civilisation.benchmark;
+
+import me.barnaby.civilisation.civilisation.MembershipIndex;
+import me.barnaby.civilisation.civilisation.Memberships;
+import me.barnaby.civilisation.config.StateHolder;
+import me.barnaby.civilisation.metrics.MetricsRegistry;
+import me.barnaby.civilisation.storage.LogStorage;
+import me.barnaby.civilisation.storage.MembershipStore;
+import me.barnaby.civilisation.storage.Storage;
+import me.barnaby.civilisation.session.SessionSlots;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Civilisation lookups as done by {@code CivilisationManager.getPlayerCivilisation}
+ * for players that don't need a LuckPerms check: the session slot fast path for online members,
+ * the membership index for everyone else, and a miss for non-members.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MembershipBenchmark {
+    private static final int CIVILISATIONS = 5;
+
+    @Param({"10", "100", "10000"})
+    public int members;
+
+    private Path dataFolder;
+    private Storage storage;
+    private StateHolder state;
+    private SessionSlots sessionSlots;
+    private MembershipIndex index;
+    private UUID[] uuids;
+    private UUID[] strangers;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        YamlConfiguration config = new YamlConfiguration();
+        for (int civ = 0; civ < CIVILISATIONS; civ++) {
+            config.set("civilisations.civ" + civ + ".rank", "civ" + civ);
+        }
+        Map<String, String> legacyMembers = new HashMap<>();
+
+        World world = Stubs.world("world");
+        Player[] online = new Player[members];
+        uuids = new UUID[members];
+        strangers = new UUID[members];
+        names = new String[members];
+        for (int i = 0; i < members; i++) {
+            names[i] = "Player" + i;
+            online[i] = Stubs.player(names[i], new Location(world, 0, 64, 0));
+            uuids[i] = online[i].getUniqueId();
+            strangers[i] = UUID.randomUUID();
+            legacyMembers.put(names[i], "civ" + (i % CIVILISATIONS));
+        }
+
+        // Members start out as legacy name entries, as on a server upgraded from config player lists
+        dataFolder = Files.createTempDirectory("civilisation-benchmark");
+        MembershipStore store = new MembershipStore(Stubs.plugin(dataFolder.toFile()), new MetricsRegistry());
+        store.load();
+        storage = new LogStorage(store);
+        storage.saveLegacyMembers(legacyMembers).join();
+
+        state = new StateHolder();
+        sessionSlots = new SessionSlots(members);
+        index = new MembershipIndex(state, sessionSlots, storage);
+        index.rebuild(Memberships.fromConfig(config, storage.loadMemberships().join()));
+
+        // Put the members online, promoting every legacy name entry to the UUID index on first lookup
+        for (int i = 0; i < members; i++) {
+            sessionSlots.allocate(online[i]);
+            String civ = index.getCivilisation(uuids[i], names[i]);
+            sessionSlots.setCivilisation(uuids[i], state.get().memberships().indexOf(civ));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.close();
+        try (var files = Files.walk(dataFolder)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public String onlineMemberBySlot() {
+        int slot = sessionSlots.getSlot(uuids[nextPlayer()]);
+        return state.get().memberships().getCivilisationName(sessionSlots.getCivilisation(slot));
+    }
+
+    @Benchmark
+    public String memberByIndex() {
+        int i = nextPlayer();
+        return index.getCivilisation(uuids[i], names[i]);
+    }
+
+    @Benchmark
+    public boolean nonMember() {
+        UUID stranger = strangers[nextPlayer()];
+        return index.getCivilisation(stranger, null) == null && !index.isResolved(stranger);
+    }
+
+    private int nextPlayer() {
+        int i = next;
+        next = next + 1 == members ? 0 : next + 1;
+        return i;
+    }
+}
@@ -0,0 +1,51 @@
+package me.barnaby.civilisation.benchmark;
+
+import me.barnaby.civilisation.config.MessageTemplate;
+import me.barnaby.civilisation.config.PluginState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message rendering as done by {@code ConfigManager.getMessage}, which reads the compiled
+ * template from the published state snapshot and renders it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageBenchmark {
+    private PluginState state;
+
+    @Setup
+    public void setup() {
+        Map<String, MessageTemplate> messages = Map.of(
+                "general.no_permission", MessageTemplate.compile("&cYou do not have permission to do that."),
+                "chat.global", MessageTemplate.compile("&6&lGLOBAL &8> &f{0}"),
+                "report.player", MessageTemplate.compile("&c&lREPORT &8> &f{0} has reported &c{1} &ffor: &6{2}"));
+        state = PluginState.EMPTY.withConfig(messages, Map.of(), Map.of(), 100);
+    }
+
+    @Benchmark
+    public String noArguments() {
+        return state.getMessage("general.no_permission");
+    }
+
+    @Benchmark
+    public String oneArgument() {
+        return state.getMessage("chat.global", "&7[&eadmin&7] &fBarnaby: &7hello everyone");
+    }
+
+    @Benchmark
+    public String threeArguments() {
+        return state.getMessage("report.player", "Barnaby", "Steve", "griefing the spawn");
+    }
+
+    @Benchmark
+    public String missingMessage() {
+        return state.getMessage("does.not.exist");
+    }
+}
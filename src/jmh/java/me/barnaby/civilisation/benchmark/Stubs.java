@@ -0,0 +1,95 @@
+package me.barnaby.civilisation.benchmark;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Lightweight {@link Player}, {@link World} and {@link Plugin} stand-ins, so benchmarks run without a server.
+ * Only the methods the benchmarked code calls are implemented; anything else returns a default value.
+ */
+final class Stubs {
+    private Stubs() {
+    }
+
+    /**
+     * Creates a world with the given name and a random UID.
+     */
+    static World world(String name) {
+        UUID uid = UUID.randomUUID();
+        return proxy(World.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> name;
+            case "getUID" -> uid;
+            default -> objectMethod(proxy, method.getName(), args, "World[" + name + "]");
+        });
+    }
+
+    /**
+     * Creates an online player with the given name and a random UUID, standing at a fixed location.
+     */
+    static Player player(String name, Location location) {
+        UUID uuid = UUID.randomUUID();
+        return proxy(Player.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName", "getDisplayName" -> name;
+            case "getUniqueId" -> uuid;
+            case "getLocation" -> location.clone();
+            case "getWorld" -> location.getWorld();
+            case "isOnline" -> true;
+            case "sendMessage" -> null;
+            default -> objectMethod(proxy, method.getName(), args, "Player[" + name + "]");
+        });
+    }
+
+    /**
+     * Creates a plugin that keeps its files in the given folder.
+     */
+    static Plugin plugin(File dataFolder) {
+        Logger logger = Logger.getLogger("Civilisation-Benchmark");
+        return proxy(Plugin.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> "Civilisation";
+            case "getDataFolder" -> dataFolder;
+            case "getLogger" -> logger;
+            case "isEnabled" -> true;
+            default -> objectMethod(proxy, method.getName(), args, "Plugin[Civilisation]");
+        });
+    }
+
+    private static Object objectMethod(Object proxy, String name, Object[] args, String description) {
+        return switch (name) {
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> description;
+            default -> null;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result = handler.invoke(proxy, method, args);
+            // Primitive-returning methods can't return null through a proxy
+            if (result == null && method.getReturnType().isPrimitive() && method.getReturnType() != void.class) {
+                return defaultValue(method.getReturnType());
+            }
+            return result;
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        return 0d;
+    }
+}
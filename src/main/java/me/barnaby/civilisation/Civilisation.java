@@ -1,61 +1,214 @@
 package me.barnaby.civilisation;
 
 import me.barnaby.civilisation.airdrop.AirdropManager;
+import me.barnaby.civilisation.chat.ChatManager;
+import me.barnaby.civilisation.chat.PlayerGrid;
 import me.barnaby.civilisation.civilisation.CivilisationManager;
 import me.barnaby.civilisation.commands.*;
 import me.barnaby.civilisation.config.ConfigManager;
+import me.barnaby.civilisation.config.ConfigReloader;
 import me.barnaby.civilisation.event.EventManager;
 import me.barnaby.civilisation.listeners.PlayerListeners;
+import me.barnaby.civilisation.listeners.WorldListeners;
+import me.barnaby.civilisation.metrics.MetricsCsvWriter;
+import me.barnaby.civilisation.metrics.MetricsRegistry;
+import me.barnaby.civilisation.notification.NotificationDispatcher;
+import me.barnaby.civilisation.scheduler.TimerWheel;
+import me.barnaby.civilisation.session.SessionSlots;
+import me.barnaby.civilisation.storage.LogStorage;
+import me.barnaby.civilisation.storage.MembershipStore;
+import me.barnaby.civilisation.storage.ReadOnlyStorage;
+import me.barnaby.civilisation.storage.SqliteStorage;
+import me.barnaby.civilisation.storage.Storage;
+import me.barnaby.civilisation.storage.StoredMemberships;
+import me.barnaby.civilisation.util.StaffUtil;
 import net.luckperms.api.LuckPermsProvider;
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * Main class for the Civilisation plugin.
  * Handles initialization of config, commands, event listeners, and managers.
  */
 public class Civilisation extends JavaPlugin {
+    private static final String MEMBERSHIP_LOG = "memberships.log";
+    private static final String IMPORTED_MEMBERSHIP_LOG = "memberships.log.imported";
+    private static final long IMPORT_TIMEOUT_SECONDS = 30L;
 
     private ConfigManager configManager;
     private CivilisationManager civilisationManager;
+    private Storage storage;
     private AirdropManager airdropManager;
     private EventManager eventManager;
+    private PlayerGrid playerGrid;
+    private MetricsRegistry metrics;
+    private MetricsCsvWriter metricsCsvWriter;
+    private TimerWheel timerWheel;
+    private SessionSlots sessionSlots;
+    private ChatManager chatManager;
+    private NotificationDispatcher notificationDispatcher;
+    private ConfigReloader configReloader;
 
     /**
      * Called when the plugin is enabled. Initializes all managers, commands, and events.
      */
     @Override
     public void onEnable() {
-        configManager = new ConfigManager(this, LuckPermsProvider.get());
+        // Every timer in the plugin is scheduled through the wheel, so it has to exist first
+        metrics = new MetricsRegistry();
+        timerWheel = new TimerWheel(this, metrics);
+        timerWheel.start();
+
+        configManager = new ConfigManager(this, LuckPermsProvider.get(), metrics);
+        metricsCsvWriter = new MetricsCsvWriter(this, metrics, timerWheel);
+        metricsCsvWriter.setInterval(configManager.getConfig().getInt("metrics.csv_interval", 0));
+
+        // Give players already online (e.g. after a reload) their session slots before anything reads them
+        sessionSlots = new SessionSlots(Bukkit.getMaxPlayers());
+        Bukkit.getOnlinePlayers().forEach(sessionSlots::allocate);
+        chatManager = new ChatManager(sessionSlots);
 
         // Reinitialize other managers that depend on the configuration
-        civilisationManager = new CivilisationManager(this, configManager);
+        storage = openStorage();
+        civilisationManager = new CivilisationManager(this, configManager, sessionSlots, storage);
         airdropManager = new AirdropManager(this);
         eventManager = new EventManager(this);
+
+        // Track players already online (e.g. after a reload)
+        playerGrid = new PlayerGrid(sessionSlots);
+        Bukkit.getOnlinePlayers().forEach(playerGrid::track);
+        StaffUtil.register(this, LuckPermsProvider.get());
+        notificationDispatcher = new NotificationDispatcher(timerWheel, configManager, metrics);
+        configReloader = new ConfigReloader(this);
+
         // Register event listeners
         Bukkit.getPluginManager().registerEvents(
                 new PlayerListeners(this, LuckPermsProvider.get()), this
         );
+        Bukkit.getPluginManager().registerEvents(new WorldListeners(this), this);
 
         // Register commands
         registerCommands();
     }
 
-    public void reloadCivilisationsConfig() {
-        System.out.println("Reloading configuration and components...");
+    /**
+     * Called when the plugin is disabled. Stops all timers and flushes any pending storage and config writes.
+     */
+    @Override
+    public void onDisable() {
+        if (configReloader != null) {
+            configReloader.shutdown();
+        }
+        if (timerWheel != null) {
+            timerWheel.stop();
+        }
+        if (storage != null) {
+            storage.close();
+        }
+        if (configManager != null) {
+            configManager.shutdown();
+        }
+    }
 
-        reloadConfig();
-        configManager.loadConfig();
+    /**
+     * Reloads config.yml off the main thread, then swaps it in together with the components whose sections changed.
+     *
+     * @return a future completed on the main thread with the top-level sections that changed.
+     */
+    public CompletableFuture<Set<String>> reloadCivilisationsConfig() {
+        return configReloader.reload();
+    }
 
+
+    /**
+     * Opens the storage backend chosen by "storage.type": "sqlite" (the default) or "log".
+     * If the SQLite database can't be opened, memberships.log is used instead. If that log was already
+     * imported into the database, its imported copy is served read-only, so the database stays the only
+     * record of membership changes.
+     */
+    private Storage openStorage() {
+        FileConfiguration config = configManager.getConfig();
+        if (config.getString("storage.type", "sqlite").equalsIgnoreCase("sqlite")) {
+            try {
+                SqliteStorage sqlite = new SqliteStorage(this, metrics, config.getInt("storage.reader_threads", 2));
+                importMembershipLog(sqlite);
+                return sqlite;
+            } catch (SQLException e) {
+                getLogger().severe("Could not open the SQLite database!");
+                e.printStackTrace();
+            }
+
+            if (!new File(getDataFolder(), MEMBERSHIP_LOG).exists() && new File(getDataFolder(), IMPORTED_MEMBERSHIP_LOG).exists()) {
+                getLogger().severe("Memberships live in the SQLite database since " + MEMBERSHIP_LOG + " was imported into it. "
+                        + "Loading them read-only from " + IMPORTED_MEMBERSHIP_LOG + ", which may be out of date; "
+                        + "membership changes will not be saved until the database opens again!");
+                MembershipStore imported = new MembershipStore(this, metrics, IMPORTED_MEMBERSHIP_LOG);
+                imported.loadReadOnly();
+                return new ReadOnlyStorage(new LogStorage(imported));
+            }
+            getLogger().severe("Falling back to " + MEMBERSHIP_LOG + ".");
+        }
+        MembershipStore store = new MembershipStore(this, metrics);
+        store.load();
+        return new LogStorage(store);
     }
 
+    /**
+     * Copies the memberships from a memberships.log left by the log backend into the given storage,
+     * then renames the log so it is only imported once. The writes are waited for at most
+     * {@value #IMPORT_TIMEOUT_SECONDS} seconds; if they don't finish, the import is retried on the next start.
+     */
+    private void importMembershipLog(Storage target) {
+        File logFile = new File(getDataFolder(), MEMBERSHIP_LOG);
+        if (!logFile.exists()) return;
+
+        MembershipStore store = new MembershipStore(this, metrics);
+        store.load();
+        StoredMemberships stored = new LogStorage(store).loadMemberships().join();
+        store.shutdown();
+
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        writes.add(target.saveLegacyMembers(stored.legacyMembers()));
+        stored.members().forEach((uuid, member) -> writes.add(target.saveMember(uuid, member.name(), member.civilisation())));
+        long start = System.nanoTime();
+        try {
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get(IMPORT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException | TimeoutException e) {
+            getLogger().severe("Could not import " + MEMBERSHIP_LOG + " within " + IMPORT_TIMEOUT_SECONDS
+                    + "s, it will be retried on the next start.");
+            e.printStackTrace();
+            return;
+        }
+        File imported = new File(getDataFolder(), IMPORTED_MEMBERSHIP_LOG);
+        if (!logFile.renameTo(imported)) {
+            getLogger().warning("Could not rename memberships.log after importing it.");
+        }
+        getLogger().info("Imported " + stored.members().size() + " memberships from " + MEMBERSHIP_LOG + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+    }
 
     /**
      * Registers all plugin commands.
      */
     private void registerCommands() {
         getCommand("notify").setExecutor(new NotifyCommand(this));
-        getCommand("report").setExecutor(new ReportCommand(this));
+        ReportCommand reportCommand = new ReportCommand(this);
+        getCommand("report").setExecutor(reportCommand);
+        getCommand("reports").setExecutor(reportCommand);
         getCommand("chat").setExecutor(new ChatCommand(this));
         getCommand("civilisation").setExecutor(new CivilisationCommand(this));
 
@@ -74,6 +227,14 @@ public class Civilisation extends JavaPlugin {
         return civilisationManager;
     }
 
+    public NotificationDispatcher getNotificationDispatcher() {
+        return notificationDispatcher;
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
     public ConfigManager getConfigManager() {
         return configManager;
     }
@@ -85,5 +246,29 @@ public class Civilisation extends JavaPlugin {
     public EventManager getEventManager() {
         return eventManager;
     }
+
+    public PlayerGrid getPlayerGrid() {
+        return playerGrid;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public MetricsCsvWriter getMetricsCsvWriter() {
+        return metricsCsvWriter;
+    }
+
+    public TimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
+    public SessionSlots getSessionSlots() {
+        return sessionSlots;
+    }
+
+    public ChatManager getChatManager() {
+        return chatManager;
+    }
 }
 
@@ -4,11 +4,12 @@ import io.th0rgal.oraxen.api.OraxenItems;
 import io.th0rgal.oraxen.items.ItemBuilder;
 import me.barnaby.civilisation.Civilisation;
 import me.barnaby.civilisation.config.ConfigManager;
+import me.barnaby.civilisation.metrics.LatencyHistogram;
+import me.barnaby.civilisation.scheduler.ScheduledTask;
+import me.barnaby.civilisation.scheduler.TimerWheel;
 import me.barnaby.civilisation.util.ChatUtils;
 import me.barnaby.civilisation.util.StaffUtil;
-import net.md_5.bungee.api.chat.ClickEvent;
-import net.md_5.bungee.api.chat.HoverEvent;
-import net.md_5.bungee.api.chat.hover.content.Text;
+import me.barnaby.civilisation.util.WeightedSampler;
 import org.bukkit.*;
 import org.bukkit.block.Block;
 import org.bukkit.block.Chest;
@@ -19,7 +20,6 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.FireworkMeta;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
 
@@ -30,24 +30,74 @@ public class AirdropManager {
     private final Civilisation plugin;
     private final ConfigManager configManager;
     private final Random random = new Random();
+    private volatile WeightedSampler<String> airdropTypes = WeightedSampler.empty();
+    // Compiled loot for each airdrop type, replaced as a whole on every (re)load
+    private volatile Map<String, List<LootEntry>> lootTables = Map.of();
+    private volatile AirdropRegion region;
+    private final AirdropSiteFinder siteFinder;
+    private final LandingSiteIndex landingSites;
+    private final TimerWheel timerWheel;
+    private ScheduledTask airdropTimer;
+    // Time from a spawn request to the chest being placed, including the async site search
+    private final LatencyHistogram spawnTimer;
+    private final LatencyHistogram placeTimer;
+    private final LatencyHistogram lootTimer;
 
     public AirdropManager(Civilisation plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
-        startAirdropTimer();
+        this.timerWheel = plugin.getTimerWheel();
+        this.spawnTimer = plugin.getMetrics().timer("airdrop.spawn");
+        this.placeTimer = plugin.getMetrics().timer("airdrop.place");
+        this.lootTimer = plugin.getMetrics().timer("airdrop.loot");
+        this.siteFinder = new AirdropSiteFinder(plugin);
+        this.landingSites = new LandingSiteIndex(plugin, timerWheel, siteFinder);
+        reload();
     }
 
     /**
-     * Starts an automatic airdrop timer based on configured intervals.
+     * Rebuilds the airdrop type sampler and loot tables from the current configuration.
+     * Invalid loot entries are reported here, once, rather than on every drop.
      */
-    private void startAirdropTimer() {
-        int interval = configManager.getConfig().getInt("airdrop.interval", 7200); // Default 2 hours (in seconds)
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                spawnAirdrop();
-            }
-        }.runTaskTimer(plugin, interval * 20L, interval * 20L); // Convert seconds to ticks
+    public void reload() {
+        scheduleAirdropTimer();
+        region = AirdropRegion.fromConfig(configManager.getConfig().getConfigurationSection("airdrop.region"));
+        landingSites.setRegion(region);
+
+        ConfigurationSection typesSection = configManager.getConfig().getConfigurationSection("airdrop.types");
+        if (typesSection == null) {
+            airdropTypes = WeightedSampler.empty();
+            lootTables = Map.of();
+            return;
+        }
+
+        List<String> types = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        Map<String, List<LootEntry>> tables = new HashMap<>();
+        for (String key : typesSection.getKeys(false)) {
+            types.add(key);
+            weights.add(typesSection.getInt(key + ".chance", 100));
+            tables.put(key, compileLootTable(key, typesSection.getConfigurationSection(key + ".items")));
+        }
+        airdropTypes = WeightedSampler.of(types, weights);
+        lootTables = Map.copyOf(tables);
+    }
+
+    /**
+     * Starts the automatic airdrop timer, or reschedules it if "airdrop.interval" changed.
+     * Each drop is moved by up to "airdrop.interval_jitter" seconds either way.
+     */
+    private void scheduleAirdropTimer() {
+        long interval = configManager.getConfig().getInt("airdrop.interval", 7200) * 20L; // Default 2 hours (in seconds)
+        long jitter = configManager.getConfig().getInt("airdrop.interval_jitter", 60) * 20L;
+        if (airdropTimer == null) {
+            airdropTimer = timerWheel.schedule("airdrop", interval, interval, jitter, 5, this::spawnAirdrop);
+            return;
+        }
+        airdropTimer.setJitter(jitter);
+        if (airdropTimer.getPeriodTicks() != interval) {
+            airdropTimer.reschedule(interval);
+        }
     }
 
     /**
@@ -66,18 +116,36 @@ public class AirdropManager {
      * Spawns an airdrop of a specified type.
      */
     public void spawnAirdrop(String type) {
-        ConfigurationSection typeSection = configManager.getConfig().getConfigurationSection("airdrop.types." + type);
-        if (typeSection == null) {
+        if (!lootTables.containsKey(type)) {
             plugin.getLogger().warning("Airdrop type '" + type + "' does not exist!");
             return;
         }
 
-        Location dropLocation = getRandomLocation();
-        if (dropLocation == null) {
+        AirdropRegion region = this.region;
+        if (region == null) {
             plugin.getLogger().severe("Failed to find a valid airdrop location!");
             return;
         }
 
+        // The site is searched for asynchronously; the chest is placed back on the main thread
+        long start = System.nanoTime();
+        siteFinder.findSite(region, landingSites).whenComplete((dropLocation, error) -> {
+            if (error != null) {
+                plugin.getLogger().severe("Failed to find a valid airdrop location: " + error.getMessage());
+            } else if (dropLocation == null) {
+                plugin.getLogger().severe("Failed to find a valid airdrop location!");
+            } else {
+                placeAirdrop(type, dropLocation);
+                spawnTimer.recordSince(start);
+            }
+        });
+    }
+
+    /**
+     * Places, fills and announces an airdrop at a location already known to be safe. Runs on the main thread.
+     */
+    private void placeAirdrop(String type, Location dropLocation) {
+        long start = System.nanoTime();
         // Place the chest on top of the highest block by using the dropLocation (which is already one block above)
         Block block = dropLocation.getBlock();
         block.setType(Material.CHEST);
@@ -91,151 +159,162 @@ public class AirdropManager {
         // Announce to public
         Bukkit.broadcastMessage(configManager.getMessage("airdrop.announcement", type.toUpperCase(), dropLocation.getBlockX(), dropLocation.getBlockZ()));
 
-        // Notify staff with a clickable teleport message
-        StaffUtil.getOnlineStaff().forEach(staff -> ChatUtils.sendClickableMessage(
-                staff,
-                configManager.getMessage("airdrop.teleport_click"),
-                new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/teleport " + dropLocation.getBlockX() + " " + dropLocation.getBlockY() + " " + dropLocation.getBlockZ()),
-                new HoverEvent(HoverEvent.Action.SHOW_TEXT, new Text(configManager.getMessage("airdrop.teleport_hover")))
-        ));
+        // Notify staff with a clickable teleport message, built once for all of them
+        ChatUtils.send(StaffUtil.getOnlineStaff(), ChatUtils.commandLink(
+                configManager.getComponents("airdrop.teleport_click"),
+                "/teleport " + dropLocation.getBlockX() + " " + dropLocation.getBlockY() + " " + dropLocation.getBlockZ(),
+                configManager.getComponents("airdrop.teleport_hover")));
+        placeTimer.recordSince(start);
     }
 
     /**
-     * Retrieves a random airdrop type based on weighted chance.
+     * Gets the index of known landing sites, kept current by chunk events.
      */
-    private String getRandomAirdropType() {
-        ConfigurationSection typesSection = configManager.getConfig().getConfigurationSection("airdrop.types");
-        if (typesSection == null) return null;
-
-        List<String> airdropTypes = new ArrayList<>();
-        for (String key : typesSection.getKeys(false)) {
-            int chance = typesSection.getInt(key + ".chance", 100);
-            for (int i = 0; i < chance; i++) {
-                airdropTypes.add(key);
-            }
-        }
-
-        return airdropTypes.isEmpty() ? null : airdropTypes.get(random.nextInt(airdropTypes.size()));
+    public LandingSiteIndex getLandingSites() {
+        return landingSites;
     }
 
     /**
-     * Retrieves a random valid location for the airdrop.
-     * <p>
-     * This method attempts to find a location within the defined region
-     * where the airdrop can safely land. It checks that the block at the
-     * highest point is both solid and not liquid (e.g., water or lava).
-     * If a valid location is found, it returns the location one block above,
-     * where the chest will be placed.
-     * </p>
+     * Retrieves a random airdrop type based on weighted chance.
      */
-    private Location getRandomLocation() {
-        ConfigurationSection section = configManager.getConfig().getConfigurationSection("airdrop.region");
-        if (section == null) return null;
-
-        World world = Bukkit.getWorld(section.getString("world", "world"));
-        if (world == null) return null;
-
-        int x1 = section.getInt("x1");
-        int z1 = section.getInt("z1");
-        int x2 = section.getInt("x2");
-        int z2 = section.getInt("z2");
-
-        int attempts = 0;
-        while (attempts < 10) {
-            int x = random.nextInt(Math.abs(x2 - x1) + 1) + Math.min(x1, x2);
-            int z = random.nextInt(Math.abs(z2 - z1) + 1) + Math.min(z1, z2);
-            Block highestBlock = world.getHighestBlockAt(x, z);
-
-            // Ensure the block is solid and not liquid (e.g., water or lava)
-            if (!highestBlock.isLiquid() && highestBlock.getType().isSolid()) {
-                // Return the location one block above the highest block
-                return highestBlock.getLocation().add(0, 1, 0);
-            }
-            attempts++;
-        }
-        return null;
+    private String getRandomAirdropType() {
+        return airdropTypes.sample();
     }
 
     /**
      * Fills the airdrop chest with loot based on its type.
      */
     private void fillChestWithLoot(Chest chest, String airdropType) {
-        ConfigurationSection typeSection = configManager.getConfig().getConfigurationSection("airdrop.types." + airdropType);
-        if (typeSection == null) {
+        List<LootEntry> lootTable = lootTables.get(airdropType);
+        if (lootTable == null) {
             plugin.getLogger().warning("Airdrop type '" + airdropType + "' does not exist in config!");
             return;
         }
 
-        ConfigurationSection itemsSection = typeSection.getConfigurationSection("items");
-        if (itemsSection == null) return;
+        long start = System.nanoTime();
+        for (LootEntry entry : lootTable) {
+            ItemStack item = entry.roll(random);
+            if (item != null) {
+                chest.getInventory().addItem(item);
+            }
+        }
+        lootTimer.recordSince(start);
+    }
 
+    /**
+     * Compiles the items of an airdrop type into loot entries with prototype items.
+     */
+    private List<LootEntry> compileLootTable(String airdropType, ConfigurationSection itemsSection) {
+        if (itemsSection == null) return List.of();
+
+        List<LootEntry> entries = new ArrayList<>();
         for (String key : itemsSection.getKeys(false)) {
             ConfigurationSection itemSection = itemsSection.getConfigurationSection(key);
             if (itemSection == null) continue;
 
-            int chance = itemSection.getInt("chance-of-inclusion", 100);
-            if (random.nextInt(100) >= chance) continue;
+            ItemStack prototype = createPrototype(airdropType, key, itemSection);
+            if (prototype == null) continue;
 
             int minAmount = itemSection.getInt("amount-min", 1);
             int maxAmount = itemSection.getInt("amount-max", 1);
-            int amount = random.nextInt((maxAmount - minAmount) + 1) + minAmount;
+            if (maxAmount < minAmount) {
+                warnLoot(airdropType, key, "amount-max is lower than amount-min, using amount-min for both");
+                maxAmount = minAmount;
+            }
+            entries.add(new LootEntry(prototype, itemSection.getInt("chance-of-inclusion", 100), minAmount, maxAmount));
+        }
+        return List.copyOf(entries);
+    }
 
-            ItemStack item = new ItemStack(Material.STONE);
-            if (key.startsWith("ORAXEN_")) {
-                String id = key.replace("ORAXEN_", "");
-                ItemBuilder itemBuilder = OraxenItems.getItemById(id);
-                if (itemBuilder != null) item=itemBuilder.setAmount(amount).build();
+    /**
+     * Builds the fully configured item for a loot entry.
+     *
+     * @return the item, or null if its material or Oraxen id can't be resolved.
+     */
+    private ItemStack createPrototype(String airdropType, String key, ConfigurationSection itemSection) {
+        ItemStack item;
+        if (key.startsWith("ORAXEN_")) {
+            if (Bukkit.getPluginManager().getPlugin("Oraxen") == null) {
+                warnLoot(airdropType, key, "Oraxen is not installed, skipping it");
+                return null;
+            }
+            String id = key.replace("ORAXEN_", "");
+            ItemBuilder itemBuilder = OraxenItems.getItemById(id);
+            if (itemBuilder == null) {
+                warnLoot(airdropType, key, "unknown Oraxen item '" + id + "', skipping it");
+                return null;
             }
+            item = itemBuilder.build();
+            item.setAmount(1);
+        }
 
-            else {
-                Material material = Material.matchMaterial(key);
-                if (material == null) continue;
-                item = new ItemStack(material, amount);
+        else {
+            Material material = Material.matchMaterial(key);
+            if (material == null || !material.isItem()) {
+                warnLoot(airdropType, key, "unknown item material, skipping it");
+                return null;
             }
+            item = new ItemStack(material, 1);
+        }
 
-            ItemMeta meta = item.getItemMeta();
+        ItemMeta meta = item.getItemMeta();
 
-            if (meta != null) {
-                // Apply custom name if provided
-                if (itemSection.contains("name")) {
-                    meta.setDisplayName(ChatColor.translateAlternateColorCodes('&', itemSection.getString("name")));
-                }
+        if (meta != null) {
+            // Apply custom name if provided
+            if (itemSection.contains("name")) {
+                meta.setDisplayName(ChatColor.translateAlternateColorCodes('&', itemSection.getString("name")));
+            }
 
-                // Apply custom lore if provided (a list of strings)
-                if (itemSection.contains("lore")) {
-                    List<String> loreList = itemSection.getStringList("lore");
-                    List<String> translatedLore = new ArrayList<>();
-                    for (String loreLine : loreList) {
-                        translatedLore.add(ChatColor.translateAlternateColorCodes('&', loreLine));
-                    }
-                    meta.setLore(translatedLore);
+            // Apply custom lore if provided (a list of strings)
+            if (itemSection.contains("lore")) {
+                List<String> translatedLore = new ArrayList<>();
+                for (String loreLine : itemSection.getStringList("lore")) {
+                    translatedLore.add(ChatColor.translateAlternateColorCodes('&', loreLine));
                 }
+                meta.setLore(translatedLore);
+            }
 
-                // Apply enchantments if provided
-                if (itemSection.contains("enchants")) {
-                    for (String enchantEntry : itemSection.getStringList("enchants")) {
-                        String[] parts = enchantEntry.split(":");
-                        if (parts.length == 2) {
-                            Enchantment enchantment = Enchantment.getByName(parts[0].toUpperCase());
-                            int level = Integer.parseInt(parts[1].trim());
-                            if (enchantment != null) {
-                                meta.addEnchant(enchantment, level, true);
-                            }
-                        }
-                    }
+            // Apply enchantments if provided
+            for (String enchantEntry : itemSection.getStringList("enchants")) {
+                String[] parts = enchantEntry.split(":");
+                if (parts.length != 2) {
+                    warnLoot(airdropType, key, "enchant '" + enchantEntry + "' should look like NAME: LEVEL, ignoring it");
+                    continue;
                 }
-
-                // Apply custom model data if provided
-                if (itemSection.contains("custom-model-data")) {
-                    int modelData = itemSection.getInt("custom-model-data");
-                    meta.setCustomModelData(modelData);
+                Enchantment enchantment = getEnchantment(parts[0].trim());
+                if (enchantment == null) {
+                    warnLoot(airdropType, key, "unknown enchantment '" + parts[0].trim() + "', ignoring it");
+                    continue;
+                }
+                try {
+                    meta.addEnchant(enchantment, Integer.parseInt(parts[1].trim()), true);
+                } catch (NumberFormatException e) {
+                    warnLoot(airdropType, key, "invalid enchantment level '" + parts[1].trim() + "', ignoring it");
                 }
+            }
 
-                item.setItemMeta(meta);
+            // Apply custom model data if provided
+            if (itemSection.contains("custom-model-data")) {
+                meta.setCustomModelData(itemSection.getInt("custom-model-data"));
             }
 
-            chest.getInventory().addItem(item);
+            item.setItemMeta(meta);
         }
+        return item;
+    }
+
+    /**
+     * Looks up an enchantment by its Minecraft key (e.g. FORTUNE) or its legacy Bukkit name (e.g. LOOT_BONUS_BLOCKS).
+     */
+    @SuppressWarnings("deprecation")
+    private Enchantment getEnchantment(String name) {
+        NamespacedKey key = NamespacedKey.fromString(name.toLowerCase());
+        Enchantment enchantment = key == null ? null : Registry.ENCHANTMENT.get(key);
+        return enchantment != null ? enchantment : Enchantment.getByName(name.toUpperCase());
+    }
+
+    private void warnLoot(String airdropType, String key, String problem) {
+        plugin.getLogger().warning("Airdrop type '" + airdropType + "', item '" + key + "': " + problem + ".");
     }
 
 
@@ -0,0 +1,31 @@
+package me.barnaby.civilisation.airdrop;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * The rectangular area airdrops may land in, with corners normalised so min <= max.
+ *
+ * @param world the name of the world the region is in
+ */
+public record AirdropRegion(String world, int minX, int minZ, int maxX, int maxZ) {
+
+    /**
+     * Reads the region from an "airdrop.region" section.
+     *
+     * @return the region, or null if the section is missing.
+     */
+    public static AirdropRegion fromConfig(ConfigurationSection section) {
+        if (section == null) return null;
+
+        int x1 = section.getInt("x1");
+        int z1 = section.getInt("z1");
+        int x2 = section.getInt("x2");
+        int z2 = section.getInt("z2");
+        return new AirdropRegion(section.getString("world", "world"),
+                Math.min(x1, x2), Math.min(z1, z2), Math.max(x1, x2), Math.max(z1, z2));
+    }
+
+    public boolean contains(int x, int z) {
+        return x >= minX && x <= maxX && z >= minZ && z <= maxZ;
+    }
+}
@@ -0,0 +1,160 @@
+package me.barnaby.civilisation.airdrop;
+
+import org.bukkit.*;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Finds airdrop landing sites without loading chunks or probing terrain synchronously.
+ * <p>
+ * Candidate chunks are loaded asynchronously through Paper's {@code World#getChunkAtAsync}
+ * where available; on Spigot they are loaded on the main thread, one per tick.
+ * Each loaded chunk is captured as a {@link ChunkSnapshot} and its columns are checked
+ * off the main thread. Only the resulting location is handed back to the main thread.
+ * </p>
+ */
+public class AirdropSiteFinder {
+    private static final int MAX_CHUNKS = 10;
+    private static final int COLUMNS_PER_CHUNK = 8;
+    // The least share of drops placed from the index while it only covers part of the region
+    private static final double MIN_INDEX_SHARE = 0.5;
+
+    private final Plugin plugin;
+    private final Executor mainThread;
+    private final Executor asyncThread;
+    // Paper's World#getChunkAtAsync(int, int), or null on Spigot
+    private final Method getChunkAtAsync;
+
+    public AirdropSiteFinder(Plugin plugin) {
+        this.plugin = plugin;
+        this.mainThread = runnable -> Bukkit.getScheduler().runTask(plugin, runnable);
+        this.asyncThread = runnable -> Bukkit.getScheduler().runTaskAsynchronously(plugin, runnable);
+        this.getChunkAtAsync = findGetChunkAtAsync();
+    }
+
+    /**
+     * Whether chunks can be loaded off the main thread (Paper).
+     */
+    public boolean isAsyncChunkLoading() {
+        return getChunkAtAsync != null;
+    }
+
+    /**
+     * Finds a landing site in the region, preferring a known-good site from the index.
+     * While the index covers only part of the region, some drops search the whole region instead,
+     * so areas the index hasn't reached still get airdrops. The picked site is re-checked against a fresh snapshot of its chunk (which also refreshes
+     * that chunk's index entries); if it is no longer safe, or the index is still empty,
+     * the region is searched for a solid, non-liquid highest block instead.
+     *
+     * @return a future completed on the main thread with the location one block above
+     * the chosen block, or null if no site was found.
+     */
+    public CompletableFuture<Location> findSite(AirdropRegion region, LandingSiteIndex knownSites) {
+        World world = Bukkit.getWorld(region.world());
+        if (world == null) {
+            plugin.getLogger().warning("Airdrop world '" + region.world() + "' is not loaded!");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        double indexShare = Math.max(MIN_INDEX_SHARE, knownSites.getCoverage());
+        Location site = ThreadLocalRandom.current().nextDouble() < indexShare ? knownSites.pick(world) : null;
+        CompletableFuture<Location> result = site == null
+                ? search(world, region, MAX_CHUNKS)
+                : loadSnapshot(world, site.getBlockX() >> 4, site.getBlockZ() >> 4)
+                        .thenApplyAsync(snapshot -> {
+                            knownSites.index(region, snapshot);
+                            int y = getLandingY(snapshot, site.getBlockX() & 15, site.getBlockZ() & 15);
+                            return y == site.getBlockY() ? site : null;
+                        }, asyncThread)
+                        .thenCompose(location -> location != null
+                                ? CompletableFuture.completedFuture(location)
+                                : search(world, region, MAX_CHUNKS));
+        return result.thenApplyAsync(location -> location, mainThread);
+    }
+
+    private CompletableFuture<Location> search(World world, AirdropRegion region, int chunksLeft) {
+        if (chunksLeft <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int x = random.nextInt(region.minX(), region.maxX() + 1);
+        int z = random.nextInt(region.minZ(), region.maxZ() + 1);
+
+        return loadSnapshot(world, x >> 4, z >> 4)
+                .thenApplyAsync(snapshot -> findColumn(world, snapshot, region), asyncThread)
+                .thenCompose(location -> location != null
+                        ? CompletableFuture.completedFuture(location)
+                        : search(world, region, chunksLeft - 1));
+    }
+
+    /**
+     * Loads a chunk without blocking the current tick and captures a snapshot of it on the main thread.
+     */
+    public CompletableFuture<ChunkSnapshot> loadSnapshot(World world, int chunkX, int chunkZ) {
+        return loadChunk(world, chunkX, chunkZ)
+                .thenApplyAsync(chunk -> chunk.getChunkSnapshot(true, false, false), mainThread);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Chunk> loadChunk(World world, int chunkX, int chunkZ) {
+        if (getChunkAtAsync != null) {
+            try {
+                return (CompletableFuture<Chunk>) getChunkAtAsync.invoke(world, chunkX, chunkZ);
+            } catch (ReflectiveOperationException e) {
+                plugin.getLogger().warning("Async chunk loading failed, falling back to the main thread: " + e.getMessage());
+            }
+        }
+        // Spigot: load on the main thread, spreading loads over separate ticks
+        return CompletableFuture.supplyAsync(() -> world.getChunkAt(chunkX, chunkZ), mainThread);
+    }
+
+    /**
+     * Tries a few random columns of the snapshot that lie inside the region. Safe to run off the main thread.
+     */
+    private Location findColumn(World world, ChunkSnapshot snapshot, AirdropRegion region) {
+        int baseX = snapshot.getX() << 4;
+        int baseZ = snapshot.getZ() << 4;
+        int minX = Math.max(region.minX(), baseX), maxX = Math.min(region.maxX(), baseX + 15);
+        int minZ = Math.max(region.minZ(), baseZ), maxZ = Math.min(region.maxZ(), baseZ + 15);
+        if (minX > maxX || minZ > maxZ) return null;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < COLUMNS_PER_CHUNK; attempt++) {
+            int x = random.nextInt(minX, maxX + 1);
+            int z = random.nextInt(minZ, maxZ + 1);
+            int y = getLandingY(snapshot, x & 15, z & 15);
+            if (y != Integer.MIN_VALUE) {
+                return new Location(world, x, y, z);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks a column of a snapshot for a safe landing spot.
+     *
+     * @return the y one block above the highest block if it is solid and not liquid (e.g., water or lava),
+     * otherwise Integer.MIN_VALUE.
+     */
+    public static int getLandingY(ChunkSnapshot snapshot, int localX, int localZ) {
+        int y = snapshot.getHighestBlockYAt(localX, localZ);
+        Material type = snapshot.getBlockType(localX, y, localZ);
+        if (type == Material.WATER || type == Material.LAVA || !type.isSolid()) {
+            return Integer.MIN_VALUE;
+        }
+        return y + 1;
+    }
+
+    private static Method findGetChunkAtAsync() {
+        try {
+            return World.class.getMethod("getChunkAtAsync", int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package me.barnaby.civilisation.airdrop;
+
+import me.barnaby.civilisation.scheduler.ScheduledTask;
+import me.barnaby.civilisation.scheduler.TimerWheel;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index of known-good airdrop landing columns inside the airdrop region.
+ * <p>
+ * Chunks are sampled from snapshots off the main thread the first time they load, at most
+ * {@link #MAX_SAMPLES_PER_TICK} per tick; player edits are picked up when a picked site is re-checked.
+ * On Paper, a background sweep also loads chunks of the region asynchronously, a few at a time,
+ * in a strided order that spreads even a partial sweep evenly over the region. It skips chunks that
+ * were never generated and stops after {@link #MAX_SWEEP_CHUNKS}, so it never generates terrain or
+ * loads chunks on the main thread. Sites are stored as packed longs (see {@link #pack}) in a flat
+ * array, so picking one is O(1).
+ * </p>
+ */
+public class LandingSiteIndex {
+    // Sample every 4th block along each axis: up to 16 columns per chunk
+    private static final int SAMPLE_STRIDE = 4;
+    private static final long SWEEP_PERIOD_TICKS = 20L;
+    private static final int MAX_SWEEP_CHUNKS = 1024;
+    private static final int MAX_SAMPLES_PER_TICK = 4;
+    private static final double GOLDEN_RATIO_FRACTION = 0.6180339887;
+
+    private final Plugin plugin;
+    private final TimerWheel timerWheel;
+    private final AirdropSiteFinder siteFinder;
+    // Landing columns of each sampled chunk, keyed by packed chunk coordinates
+    private final Map<Long, long[]> columnsByChunk = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final AtomicInteger sweepsInFlight = new AtomicInteger();
+
+    private volatile AirdropRegion region;
+    private volatile long[] sites = new long[0];
+    private ScheduledTask sweepTask;
+    // The sweep moves a row-major chunk position forward by the stride, modulo the chunk count
+    private long sweepStep;
+    private long sweepPosition;
+    private long sweepStride;
+    private int sweptChunks;
+    // Chunk load samples taken in the current 50ms window, only touched on the main thread
+    private long sampleWindow;
+    private int samplesInWindow;
+
+    public LandingSiteIndex(Plugin plugin, TimerWheel timerWheel, AirdropSiteFinder siteFinder) {
+        this.plugin = plugin;
+        this.timerWheel = timerWheel;
+        this.siteFinder = siteFinder;
+    }
+
+    /**
+     * Points the index at a region. If the region changed, the index is cleared and the sweep restarts.
+     */
+    public void setRegion(AirdropRegion newRegion) {
+        if (newRegion != null && newRegion.equals(region)) return;
+
+        region = newRegion;
+        columnsByChunk.clear();
+        sites = new long[0];
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+        // Spigot can only load chunks on the main thread, so there the index fills from chunk loads alone
+        if (newRegion == null || !siteFinder.isAsyncChunkLoading()) return;
+
+        long chunkCount = chunkCount(newRegion);
+        sweptChunks = 0;
+        sweepStep = 0;
+        sweepPosition = ThreadLocalRandom.current().nextLong(chunkCount);
+        sweepStride = coprimeStride(chunkCount);
+        sweepTask = timerWheel.scheduleRepeating("airdrop-site-sweep", SWEEP_PERIOD_TICKS, SWEEP_PERIOD_TICKS, this::sweep);
+    }
+
+    /**
+     * Picks a random known landing site.
+     *
+     * @return the location one block above a safe block, or null if no sites are known yet.
+     */
+    public Location pick(World world) {
+        long[] current = sites;
+        if (current.length == 0) return null;
+
+        long site = current[ThreadLocalRandom.current().nextInt(current.length)];
+        return new Location(world, unpackX(site), unpackY(site), unpackZ(site));
+    }
+
+    public int size() {
+        return sites.length;
+    }
+
+    /**
+     * The share of the region's chunks that have been sampled, from 0 to 1.
+     */
+    public double getCoverage() {
+        AirdropRegion current = region;
+        return current == null ? 0 : Math.min(1.0, columnsByChunk.size() / (double) chunkCount(current));
+    }
+
+    /**
+     * Samples a chunk if it lies inside the region and hasn't been indexed yet. Chunks past the
+     * per-tick budget are skipped; they are sampled the next time they load. Must be called on the main thread.
+     */
+    public void sample(Chunk chunk) {
+        AirdropRegion current = region;
+        if (current == null || !chunk.getWorld().getName().equals(current.world()) || !overlaps(current, chunk.getX(), chunk.getZ())) {
+            return;
+        }
+        if (columnsByChunk.containsKey(chunkKey(chunk.getX(), chunk.getZ()))) {
+            return;
+        }
+        long window = System.currentTimeMillis() / 50;
+        if (window != sampleWindow) {
+            sampleWindow = window;
+            samplesInWindow = 0;
+        }
+        if (++samplesInWindow > MAX_SAMPLES_PER_TICK) {
+            return;
+        }
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(true, false, false);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> index(current, snapshot));
+    }
+
+    /**
+     * Samples the columns of a snapshot and replaces the chunk's entries. Safe to run off the main thread.
+     */
+    public void index(AirdropRegion sampledRegion, ChunkSnapshot snapshot) {
+        if (sampledRegion != region) return;
+
+        int baseX = snapshot.getX() << 4;
+        int baseZ = snapshot.getZ() << 4;
+        long[] found = new long[(16 / SAMPLE_STRIDE) * (16 / SAMPLE_STRIDE)];
+        int count = 0;
+        for (int localX = 0; localX < 16; localX += SAMPLE_STRIDE) {
+            for (int localZ = 0; localZ < 16; localZ += SAMPLE_STRIDE) {
+                int x = baseX + localX, z = baseZ + localZ;
+                if (!sampledRegion.contains(x, z)) continue;
+                int y = AirdropSiteFinder.getLandingY(snapshot, localX, localZ);
+                if (y != Integer.MIN_VALUE) {
+                    found[count++] = pack(x, y, z);
+                }
+            }
+        }
+
+        long chunkKey = chunkKey(snapshot.getX(), snapshot.getZ());
+        if (count == 0) {
+            columnsByChunk.put(chunkKey, new long[0]);
+        } else {
+            long[] columns = new long[count];
+            System.arraycopy(found, 0, columns, 0, count);
+            columnsByChunk.put(chunkKey, columns);
+        }
+        queueRebuild();
+    }
+
+    /**
+     * Loads the next few unsampled, already generated chunks of the region asynchronously.
+     * Stops once the whole region has been visited or {@link #MAX_SWEEP_CHUNKS} chunks were loaded.
+     */
+    private void sweep() {
+        AirdropRegion current = region;
+        World world = current == null ? null : Bukkit.getWorld(current.world());
+        if (world == null) return;
+
+        long chunkCount = chunkCount(current);
+        int depth = (current.maxZ() >> 4) - (current.minZ() >> 4) + 1;
+        while (sweepsInFlight.get() < 4) {
+            if (sweepStep >= chunkCount || sweptChunks >= MAX_SWEEP_CHUNKS) {
+                sweepTask.cancel();
+                sweepTask = null;
+                plugin.getLogger().info("Airdrop landing index built with " + sites.length + " sites, covering "
+                        + Math.round(getCoverage() * 100) + "% of the region.");
+                return;
+            }
+
+            // The stride is coprime to the chunk count, so every chunk is visited exactly once
+            long position = sweepPosition;
+            sweepPosition = (sweepPosition + sweepStride) % chunkCount;
+            sweepStep++;
+            int chunkX = (current.minX() >> 4) + (int) (position / depth);
+            int chunkZ = (current.minZ() >> 4) + (int) (position % depth);
+            if (columnsByChunk.containsKey(chunkKey(chunkX, chunkZ)) || !world.isChunkGenerated(chunkX, chunkZ)) continue;
+
+            sweptChunks++;
+            sweepsInFlight.incrementAndGet();
+            siteFinder.loadSnapshot(world, chunkX, chunkZ)
+                    .thenAcceptAsync(snapshot -> index(current, snapshot),
+                            runnable -> Bukkit.getScheduler().runTaskAsynchronously(plugin, runnable))
+                    .whenComplete((ignored, error) -> sweepsInFlight.decrementAndGet());
+        }
+    }
+
+    /**
+     * Rebuilds the flat site array off the main thread, merging bursts of chunk updates into one rebuild.
+     */
+    private void queueRebuild() {
+        if (!rebuildQueued.compareAndSet(false, true)) return;
+        Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> {
+            rebuildQueued.set(false);
+            int total = 0;
+            for (long[] columns : columnsByChunk.values()) total += columns.length;
+
+            long[] rebuilt = new long[total];
+            int index = 0;
+            for (long[] columns : columnsByChunk.values()) {
+                int length = Math.min(columns.length, total - index);
+                System.arraycopy(columns, 0, rebuilt, index, length);
+                index += length;
+            }
+            sites = index == total ? rebuilt : Arrays.copyOf(rebuilt, index);
+        }, 1L);
+    }
+
+    private static long chunkCount(AirdropRegion region) {
+        long width = (region.maxX() >> 4) - (region.minX() >> 4) + 1;
+        long depth = (region.maxZ() >> 4) - (region.minZ() >> 4) + 1;
+        return width * depth;
+    }
+
+    /**
+     * Picks a stride near the golden ratio of the chunk count that is coprime to it, so consecutive
+     * steps land far apart and the sweep still reaches every chunk.
+     */
+    private static long coprimeStride(long chunkCount) {
+        long stride = Math.max(1, (long) (chunkCount * GOLDEN_RATIO_FRACTION));
+        while (gcd(stride, chunkCount) != 1) stride++;
+        return stride;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static boolean overlaps(AirdropRegion region, int chunkX, int chunkZ) {
+        return chunkX >= region.minX() >> 4 && chunkX <= region.maxX() >> 4
+                && chunkZ >= region.minZ() >> 4 && chunkZ <= region.maxZ() >> 4;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Packs block coordinates into a long: 26 bits of x, 26 bits of z and 12 bits of y.
+     */
+    static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+}
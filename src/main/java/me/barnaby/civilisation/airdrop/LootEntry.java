@@ -0,0 +1,31 @@
+package me.barnaby.civilisation.airdrop;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Random;
+
+/**
+ * A compiled airdrop loot item.
+ * The prototype already carries its name, lore, enchantments and model data;
+ * it is never handed out directly, only cloned.
+ *
+ * @param prototype the fully configured item, with an amount of 1
+ * @param chance    the percentage chance (0-100) that the item is included in a drop
+ * @param minAmount the minimum stack size
+ * @param maxAmount the maximum stack size
+ */
+public record LootEntry(ItemStack prototype, int chance, int minAmount, int maxAmount) {
+
+    /**
+     * Rolls this entry for one airdrop.
+     *
+     * @return a fresh copy of the prototype with a random amount, or null if the item wasn't included.
+     */
+    public ItemStack roll(Random random) {
+        if (random.nextInt(100) >= chance) return null;
+
+        ItemStack item = prototype.clone();
+        item.setAmount(random.nextInt((maxAmount - minAmount) + 1) + minAmount);
+        return item;
+    }
+}
@@ -1,18 +1,28 @@
 package me.barnaby.civilisation.chat;
 
+import me.barnaby.civilisation.session.SessionSlots;
 import org.bukkit.entity.Player;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Tracks each player's chat channel, stored as a byte in the player's session slot.
+ * The channel is dropped with the slot when the player leaves.
+ */
 public class ChatManager {
-    private static final Map<Player, ChatType> playerChatChannels = new HashMap<>();
+    private static final ChatType[] CHAT_TYPES = ChatType.values();
+
+    private final SessionSlots sessionSlots;
+
+    public ChatManager(SessionSlots sessionSlots) {
+        this.sessionSlots = sessionSlots;
+    }
 
-    public static ChatType getChatChannel(Player player) {
-        return playerChatChannels.getOrDefault(player, ChatType.GLOBAL); // Default to GLOBAL
+    public ChatType getChatChannel(Player player) {
+        int slot = sessionSlots.getSlot(player);
+        if (slot == SessionSlots.NO_SLOT) return ChatType.GLOBAL;
+        return CHAT_TYPES[sessionSlots.getChatChannel(slot)]; // Slots start on 0, GLOBAL
     }
 
-    public static void setChatChannel(Player player, ChatType chatType) {
-        playerChatChannels.put(player, chatType);
+    public void setChatChannel(Player player, ChatType chatType) {
+        sessionSlots.setChatChannel(player.getUniqueId(), (byte) chatType.ordinal());
     }
 }
@@ -0,0 +1,165 @@
+package me.barnaby.civilisation.chat;
+
+import me.barnaby.civilisation.session.SessionSlots;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-world uniform grid of online player positions, used to find local chat recipients
+ * without scanning every online player.
+ * Positions are written from the main thread by movement events and read from async chat threads.
+ * Each player's entry is found through their session slot, so lookups are an array read.
+ */
+public class PlayerGrid {
+    // 32x32 block cells (chunk-aligned pairs)
+    private static final int CELL_SHIFT = 5;
+
+    private final SessionSlots sessionSlots;
+    private final Map<UUID, Map<Long, Set<Tracked>>> worlds = new ConcurrentHashMap<>();
+    // Entries indexed by session slot; only grown and written on the main thread
+    private volatile Tracked[] tracked = new Tracked[64];
+
+    /**
+     * Last known position of a tracked player.
+     * Coordinates are updated field by field, so a racing reader may see a mix of two consecutive
+     * positions, which is harmless for chat range checks.
+     */
+    private static final class Tracked {
+        private final Player player;
+        private volatile UUID world;
+        private volatile long cell;
+        private volatile double x;
+        private volatile double y;
+        private volatile double z;
+
+        private Tracked(Player player) {
+            this.player = player;
+        }
+    }
+
+    public PlayerGrid(SessionSlots sessionSlots) {
+        this.sessionSlots = sessionSlots;
+    }
+
+    /**
+     * Starts tracking a player at their current location. The player must already hold a session slot.
+     */
+    public void track(Player player) {
+        int slot = sessionSlots.getSlot(player);
+        if (slot == SessionSlots.NO_SLOT) return;
+        if (slot >= tracked.length) {
+            tracked = Arrays.copyOf(tracked, Math.max(slot + 1, tracked.length * 2));
+        }
+
+        Tracked entry = new Tracked(player);
+        Tracked previous = tracked[slot];
+        tracked[slot] = entry;
+        if (previous != null) {
+            removeFromCell(previous);
+        }
+        Location location = player.getLocation();
+        setPosition(entry, location);
+        addToCell(entry);
+    }
+
+    /**
+     * Stops tracking a player. Call this before their session slot is freed.
+     */
+    public void untrack(Player player) {
+        int slot = sessionSlots.getSlot(player);
+        Tracked entry = get(slot);
+        if (entry != null) {
+            tracked[slot] = null;
+            removeFromCell(entry);
+        }
+    }
+
+    /**
+     * Records a player's new position, moving them between cells when they cross a boundary.
+     */
+    public void update(Player player, Location to) {
+        Tracked entry = get(sessionSlots.getSlot(player));
+        if (entry == null || to == null || to.getWorld() == null) return;
+
+        UUID world = to.getWorld().getUID();
+        long cell = cellKey(to.getBlockX() >> CELL_SHIFT, to.getBlockZ() >> CELL_SHIFT);
+        if (cell == entry.cell && world.equals(entry.world)) {
+            entry.x = to.getX();
+            entry.y = to.getY();
+            entry.z = to.getZ();
+            return;
+        }
+
+        removeFromCell(entry);
+        setPosition(entry, to);
+        addToCell(entry);
+    }
+
+    /**
+     * Collects every tracked player within the given distance of the centre player, including the centre player.
+     */
+    public List<Player> getNearby(Player centre, double distance) {
+        Tracked origin = get(sessionSlots.getSlot(centre));
+        if (origin == null) return List.of(centre);
+
+        Map<Long, Set<Tracked>> cells = worlds.get(origin.world);
+        if (cells == null) return List.of(centre);
+
+        double ox = origin.x, oy = origin.y, oz = origin.z;
+        double distanceSquared = distance * distance;
+        int minCellX = ((int) Math.floor(ox - distance)) >> CELL_SHIFT;
+        int maxCellX = ((int) Math.floor(ox + distance)) >> CELL_SHIFT;
+        int minCellZ = ((int) Math.floor(oz - distance)) >> CELL_SHIFT;
+        int maxCellZ = ((int) Math.floor(oz + distance)) >> CELL_SHIFT;
+
+        List<Player> nearby = new ArrayList<>();
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                Set<Tracked> cell = cells.get(cellKey(cellX, cellZ));
+                if (cell == null) continue;
+                for (Tracked entry : cell) {
+                    double dx = entry.x - ox, dy = entry.y - oy, dz = entry.z - oz;
+                    if (dx * dx + dy * dy + dz * dz <= distanceSquared) {
+                        nearby.add(entry.player);
+                    }
+                }
+            }
+        }
+        return nearby;
+    }
+
+    private Tracked get(int slot) {
+        Tracked[] current = tracked;
+        return slot >= 0 && slot < current.length ? current[slot] : null;
+    }
+
+    private void setPosition(Tracked entry, Location location) {
+        entry.world = location.getWorld().getUID();
+        entry.cell = cellKey(location.getBlockX() >> CELL_SHIFT, location.getBlockZ() >> CELL_SHIFT);
+        entry.x = location.getX();
+        entry.y = location.getY();
+        entry.z = location.getZ();
+    }
+
+    private void addToCell(Tracked entry) {
+        worlds.computeIfAbsent(entry.world, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(entry.cell, k -> ConcurrentHashMap.newKeySet())
+                .add(entry);
+    }
+
+    private void removeFromCell(Tracked entry) {
+        Map<Long, Set<Tracked>> cells = worlds.get(entry.world);
+        if (cells == null) return;
+        cells.computeIfPresent(entry.cell, (key, cell) -> {
+            cell.remove(entry);
+            return cell.isEmpty() ? null : cell;
+        });
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
@@ -1,33 +1,77 @@
 package me.barnaby.civilisation.civilisation;
 
 import me.barnaby.civilisation.config.ConfigManager;
+import me.barnaby.civilisation.session.SessionSlots;
+import me.barnaby.civilisation.storage.Storage;
+import me.barnaby.civilisation.storage.StoredMemberships;
 import net.luckperms.api.LuckPerms;
 import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.event.group.GroupDataRecalculateEvent;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
 import net.luckperms.api.model.user.User;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scoreboard.Scoreboard;
-import org.bukkit.scoreboard.ScoreboardManager;
-import org.bukkit.scoreboard.Team;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class CivilisationManager {
+    // Marks a prefetched player who belongs to no civilisation
+    private static final String NO_CIVILISATION = "";
+    // A prefetch older than this belongs to a connection that never joined
+    private static final long PREFETCH_EXPIRY_MILLIS = 60_000L;
+    // How long startup and player list migration wait for storage
+    private static final long STORAGE_TIMEOUT_SECONDS = 10L;
+
+    /**
+     * A membership resolved during pre-login and when it was resolved.
+     */
+    private record Prefetch(String civilisation, long resolvedAt) {
+        private boolean isExpired(long now) {
+            return now - resolvedAt > PREFETCH_EXPIRY_MILLIS;
+        }
+    }
+
     private final Plugin plugin;
     private final ConfigManager configManager;
     private final LuckPerms luckPerms;
     private final Map<String, Location> civilisationSpawns = new HashMap<>();
+    private final Storage storage;
+    private final MembershipIndex membershipIndex;
+    // Online members of each civilisation; the civilisation each online player is listed under is kept in their session slot
+    private final Map<String, Set<Player>> onlineMembers = new ConcurrentHashMap<>();
+    private final SessionSlots sessionSlots;
+    private final NametagService nametags;
+    // Memberships resolved during pre-login, waiting for the player to join
+    private final Map<UUID, Prefetch> prefetched = new ConcurrentHashMap<>();
+    private volatile long prefetchTimeoutMillis;
     private final Random random = new Random();
 
-    public CivilisationManager(Plugin plugin, ConfigManager configManager) {
+    public CivilisationManager(Plugin plugin, ConfigManager configManager, SessionSlots sessionSlots, Storage storage) {
         this.plugin = plugin;
         this.configManager = configManager;
+        this.sessionSlots = sessionSlots;
+        this.storage = storage;
         this.luckPerms = LuckPermsProvider.get();
+        this.membershipIndex = new MembershipIndex(configManager.getStateHolder(), sessionSlots, storage);
+        this.nametags = new NametagService(plugin);
         loadCivilisations();
+        rebuildOnlineRoster();
+
+        // Keep the membership index current as LuckPerms data changes
+        luckPerms.getEventBus().subscribe(plugin, UserDataRecalculateEvent.class, this::onUserDataRecalculate);
+        luckPerms.getEventBus().subscribe(plugin, GroupDataRecalculateEvent.class, event -> membershipIndex.invalidateAll());
     }
 
     /**
@@ -52,8 +96,6 @@ public class CivilisationManager {
             config.set(exampleCiv + ".spawnPoint.yaw", spawn.getYaw());
             config.set(exampleCiv + ".spawnPoint.pitch", spawn.getPitch());
 
-            // Example empty player list
-            config.set(exampleCiv + ".players", new ArrayList<String>());
             // The associated LuckPerms group for this civilisation
             config.set(exampleCiv + ".rank", "default");
             // New nametag-prefix option; {0} will be replaced with the player's name.
@@ -62,10 +104,53 @@ public class CivilisationManager {
             plugin.getLogger().info(configManager.getMessage("civilisation.created_example"));
         }
 
+        if (!config.contains("civilisation-prefetch-timeout-ms")) {
+            config.set("civilisation-prefetch-timeout-ms", 1000);
+        }
+        // Members are kept in storage; move over any player lists left in the config
+        migratePlayerLists(config);
+
         configManager.saveConfig();
+        loadInitialMemberships(config);
+        nametags.reload(config);
+        prefetchTimeoutMillis = config.getLong("civilisation-prefetch-timeout-ms", 1000);
+        loadSpawns(config);
+    }
 
-        // Load spawn locations for each civilisation.
-        for (String civName : config.getConfigurationSection("civilisations").getKeys(false)) {
+    /**
+     * Waits a bounded time for the stored memberships. If storage is slower than that, the
+     * civilisations start without their stored members, which are swapped in once they arrive.
+     */
+    private void loadInitialMemberships(FileConfiguration config) {
+        CompletableFuture<Memberships> loading = loadMemberships(config);
+        try {
+            membershipIndex.rebuild(loading.get(STORAGE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getLogger().severe("Could not load memberships from storage, civilisations start without their members!");
+            e.printStackTrace();
+        } catch (TimeoutException e) {
+            plugin.getLogger().severe("Memberships took more than " + STORAGE_TIMEOUT_SECONDS
+                    + "s to load from storage, civilisations start without their members until they do.");
+            loading.thenAccept(memberships -> Bukkit.getScheduler().runTask(plugin, () -> {
+                membershipIndex.rebuild(memberships);
+                rebuildOnlineRoster();
+                plugin.getLogger().info("Loaded memberships from storage.");
+            }));
+        }
+        membershipIndex.rebuild(Memberships.fromConfig(config, new StoredMemberships(Map.of(), Map.of())));
+    }
+
+    /**
+     * Loads spawn locations for each civilisation, replacing any loaded before.
+     */
+    private void loadSpawns(FileConfiguration config) {
+        civilisationSpawns.clear();
+        ConfigurationSection civilisations = config.getConfigurationSection("civilisations");
+        if (civilisations == null) return;
+        for (String civName : civilisations.getKeys(false)) {
             String path = "civilisations." + civName + ".spawnPoint";
             if (config.contains(path)) {
                 civilisationSpawns.put(civName, getLocationFromConfig(config, path));
@@ -82,41 +167,282 @@ public class CivilisationManager {
 
     /**
      * Determines which civilisation a player belongs to.
-     * If the player isn’t already registered, it uses LuckPerms (checking all inherited groups)
+     * Lookups are served from the membership index. If the player isn’t already registered
+     * and hasn’t been checked yet, it uses LuckPerms (checking all inherited groups)
      * to see if the player has the group associated with the civilisation.
-     * If a match is found, the player is added to that civilisation’s list.
+     * If a match is found, the player is recorded as a member in the membership store.
      */
     public String getPlayerCivilisation(Player player) {
-        FileConfiguration config = configManager.getConfig();
-        // Check if the player is already registered.
-        for (String civName : config.getConfigurationSection("civilisations").getKeys(false)) {
-            List<String> players = config.getStringList("civilisations." + civName + ".players");
-            if (players.contains(player.getName())) {
-                return civName;
-            }
+        // Online members already carry their civilisation in their session slot
+        int slot = sessionSlots.getSlot(player);
+        if (slot != SessionSlots.NO_SLOT && sessionSlots.getCivilisation(slot) != SessionSlots.NO_CIVILISATION) {
+            String online = configManager.getState().memberships().getCivilisationName(sessionSlots.getCivilisation(slot));
+            if (online != null) return online;
+        }
+
+        String civ = membershipIndex.getCivilisation(player.getUniqueId(), player.getName());
+        if (civ != null || membershipIndex.isResolved(player.getUniqueId())) {
+            return civ;
         }
+
         // Otherwise, check group membership via LuckPerms.
         User user = luckPerms.getUserManager().getUser(player.getUniqueId());
-        if (user != null) {
-            for (String civName : config.getConfigurationSection("civilisations").getKeys(false)) {
-                String civRank = config.getString("civilisations." + civName + ".rank");
-                if (civRank != null) {
-                    boolean hasGroup = user.getInheritedGroups(user.getQueryOptions()).stream()
-                            .anyMatch(group -> group.getName().equalsIgnoreCase(civRank));
-                    if (hasGroup) {
-                        // Add the player to the civilisation's player list.
-                        List<String> players = config.getStringList("civilisations." + civName + ".players");
-                        if (!players.contains(player.getName())) {
-                            players.add(player.getName());
-                            config.set("civilisations." + civName + ".players", players);
-                            configManager.saveConfig();
-                        }
-                        return civName;
-                    }
+        return user == null ? null : resolveMembership(user);
+    }
+
+    /**
+     * Builds the memberships for a reloaded config from storage, off the main thread.
+     * The config must not be in use by anything else yet.
+     */
+    public CompletableFuture<Memberships> loadMemberships(FileConfiguration config) {
+        return storage.loadMemberships().thenApply(stored -> Memberships.fromConfig(config, stored));
+    }
+
+    /**
+     * Swaps in the memberships, nametag teams and spawn points of a reloaded config.
+     * Must be called on the main thread, after the config itself has been applied.
+     */
+    public void reload(FileConfiguration config, Memberships memberships) {
+        // Prefetches were resolved against the old civilisations
+        prefetched.clear();
+        membershipIndex.rebuild(memberships);
+        nametags.reload(config);
+        prefetchTimeoutMillis = config.getLong("civilisation-prefetch-timeout-ms", 1000);
+        loadSpawns(config);
+        rebuildOnlineRoster();
+    }
+
+    /**
+     * Gets every known member of a civilisation, online or not, mapped to their last known name.
+     * The future completes off the main thread.
+     */
+    public CompletableFuture<Map<UUID, String>> getMembers(String civilisation) {
+        return storage.getMembers(civilisation);
+    }
+
+    /**
+     * Moves the player names listed under "civilisations.&lt;name&gt;.players" in the config into storage
+     * as legacy entries, backing the lists up to players-backup.yml first. Runs once after upgrading,
+     * and again whenever such a list is added back to the config by hand. Blocks on storage, so on
+     * reload it runs off the main thread against the freshly parsed config.
+     *
+     * @return true if the config was changed and needs saving.
+     */
+    public boolean migratePlayerLists(FileConfiguration config) {
+        ConfigurationSection civilisations = config.getConfigurationSection("civilisations");
+        if (civilisations == null) return false;
+
+        Memberships current = configManager.getState().memberships();
+        YamlConfiguration backup = new YamlConfiguration();
+        Map<String, String> legacyMembers = new HashMap<>();
+        for (String civName : civilisations.getKeys(false)) {
+            String listPath = "civilisations." + civName + ".players";
+            if (!config.contains(listPath)) continue;
+            List<String> players = config.getStringList(listPath);
+            backup.set(listPath, players);
+            for (String playerName : players) {
+                if (!civName.equals(current.getCivilisationByName(playerName))) {
+                    legacyMembers.putIfAbsent(playerName, civName);
                 }
             }
         }
-        return null;
+        if (backup.getKeys(false).isEmpty()) return false;
+
+        // The entries must be stored before the lists are dropped from the config
+        try {
+            storage.saveLegacyMembers(legacyMembers).get(STORAGE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            plugin.getLogger().severe("Could not move the civilisation player lists to storage, keeping them in the config.");
+            e.printStackTrace();
+            return false;
+        }
+
+        File backupFile = new File(plugin.getDataFolder(), "players-backup.yml");
+        if (backupFile.exists()) {
+            backupFile = new File(plugin.getDataFolder(), "players-backup-" + System.currentTimeMillis() + ".yml");
+        }
+        try {
+            backup.save(backupFile);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not back up the civilisation player lists, keeping them in the config.");
+            e.printStackTrace();
+            return false;
+        }
+        for (String civName : civilisations.getKeys(false)) {
+            config.set("civilisations." + civName + ".players", null);
+        }
+        plugin.getLogger().info("Moved the civilisation player lists to storage (backed up to " + backupFile.getName() + ").");
+        return true;
+    }
+
+    /**
+     * Resolves a connecting player's civilisation ahead of their join. Called from
+     * AsyncPlayerPreLoginEvent, off the main thread, so the LuckPerms load, the group walk and any
+     * new-member bookkeeping happen there. Waits at most "civilisation-prefetch-timeout-ms" for
+     * LuckPerms; if that runs out, the player is resolved lazily after joining instead.
+     */
+    public void prefetchMembership(UUID uuid, String name) {
+        String civ = membershipIndex.getCivilisation(uuid, name);
+        if (civ == null) {
+            User user = luckPerms.getUserManager().getUser(uuid);
+            if (user == null) {
+                try {
+                    user = luckPerms.getUserManager().loadUser(uuid, name).get(prefetchTimeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException | TimeoutException e) {
+                    plugin.getLogger().warning("Could not load LuckPerms data for " + name + " before join, resolving their civilisation later.");
+                    return;
+                }
+            }
+            civ = resolveMembership(user);
+        }
+        long now = System.currentTimeMillis();
+        // Drop prefetches of connections that dropped between pre-login and join
+        prefetched.values().removeIf(prefetch -> prefetch.isExpired(now));
+        prefetched.put(uuid, new Prefetch(civ == null ? NO_CIVILISATION : civ, now));
+    }
+
+    /**
+     * Drops a prefetched membership, e.g. when the login was refused after pre-login.
+     */
+    public void discardPrefetch(UUID uuid) {
+        prefetched.remove(uuid);
+    }
+
+    /**
+     * Adds a joining player to their civilisation's online roster.
+     * Uses the membership prefetched during pre-login when there is one, so this is just a map lookup.
+     */
+    public void handleJoin(Player player) {
+        Prefetch prefetch = prefetched.remove(player.getUniqueId());
+        String civ = prefetch == null || prefetch.isExpired(System.currentTimeMillis()) ? null : prefetch.civilisation();
+        if (civ != null && !civ.equals(NO_CIVILISATION) && configManager.getState().memberships().indexOf(civ) < 0) {
+            // The civilisation was removed by a reload since pre-login
+            civ = null;
+        }
+        if (civ == null) {
+            civ = getPlayerCivilisation(player);
+        } else if (civ.equals(NO_CIVILISATION)) {
+            // Remember the negative result for the session, as a lazy lookup would
+            sessionSlots.setFlag(player.getUniqueId(), SessionSlots.FLAG_RESOLVED);
+            civ = null;
+        }
+        if (civ != null) {
+            addOnlineMember(player, civ);
+        }
+    }
+
+    /**
+     * Removes a player from the online roster. The rest of their per-session state
+     * goes with their session slot.
+     */
+    public void handleQuit(Player player) {
+        removeOnlineMember(player);
+    }
+
+    /**
+     * Takes a player off the online roster. Must be called on the main thread.
+     */
+    private void removeOnlineMember(Player player) {
+        int slot = sessionSlots.getSlot(player);
+        if (slot == SessionSlots.NO_SLOT || sessionSlots.getCivilisation(slot) == SessionSlots.NO_CIVILISATION) {
+            return;
+        }
+        sessionSlots.setCivilisation(player.getUniqueId(), SessionSlots.NO_CIVILISATION);
+        // The roster is small, and this stays correct even if a reload renumbered the civilisations
+        onlineMembers.values().forEach(members -> members.remove(player));
+    }
+
+    /**
+     * Gets the online members of a civilisation. The returned view is live and safe to iterate from any thread.
+     */
+    public Collection<Player> getOnlineMembers(String civilisation) {
+        Set<Player> members = onlineMembers.get(civilisation);
+        return members == null ? List.of() : Collections.unmodifiableSet(members);
+    }
+
+    /**
+     * Lists a player under a civilisation on the online roster. Must be called on the main thread.
+     */
+    private void addOnlineMember(Player player, String civ) {
+        int slot = sessionSlots.getSlot(player);
+        if (slot == SessionSlots.NO_SLOT) return;
+
+        int index = configManager.getState().memberships().indexOf(civ);
+        if (index < 0) return;
+        int previous = sessionSlots.getCivilisation(slot);
+        sessionSlots.setCivilisation(player.getUniqueId(), index);
+        if (previous != SessionSlots.NO_CIVILISATION && previous != index) {
+            onlineMembers.forEach((name, members) -> {
+                if (!name.equals(civ)) members.remove(player);
+            });
+        }
+        onlineMembers.computeIfAbsent(civ, k -> ConcurrentHashMap.newKeySet()).add(player);
+    }
+
+    private void rebuildOnlineRoster() {
+        onlineMembers.clear();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            sessionSlots.setCivilisation(player.getUniqueId(), SessionSlots.NO_CIVILISATION);
+            handleJoin(player);
+            applyNametagPrefix(player);
+        }
+    }
+
+    /**
+     * Re-checks a user's civilisation whenever LuckPerms recalculates their data,
+     * e.g. after a group has been added or removed. A member who no longer holds any civilisation's
+     * group leaves their civilisation, unless it has no rank and so isn't managed through LuckPerms.
+     * Called from LuckPerms' event threads.
+     */
+    private void onUserDataRecalculate(UserDataRecalculateEvent event) {
+        User user = event.getUser();
+        String current = membershipIndex.getCivilisation(user.getUniqueId(), user.getUsername());
+        membershipIndex.invalidate(user.getUniqueId());
+        if (resolveMembership(user) != null || current == null
+                || !configManager.getState().memberships().hasRank(current)) {
+            return;
+        }
+        if (membershipIndex.removeMember(user.getUniqueId(), user.getUsername())) {
+            // The roster and nametags are only changed on the main thread, and only for players still online
+            Player online = Bukkit.getPlayer(user.getUniqueId());
+            if (online != null) {
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (online.isOnline()) {
+                        removeOnlineMember(online);
+                        nametags.remove(online);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Matches a user's groups against the civilisation ranks and records any new membership.
+     */
+    private String resolveMembership(User user) {
+        String civName = membershipIndex.resolve(user);
+        String playerName = user.getUsername();
+        if (civName != null && playerName != null
+                && membershipIndex.addMember(user.getUniqueId(), playerName, civName)) {
+            // Add the player to the roster and the civilisation's team on the main thread,
+            // as this can run on LuckPerms or chat threads while they quit
+            Player online = Bukkit.getPlayer(user.getUniqueId());
+            if (online != null) {
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (online.isOnline()) {
+                        addOnlineMember(online, civName);
+                        nametags.apply(online, civName);
+                    }
+                });
+            }
+        }
+        return civName;
     }
 
     /**
@@ -136,38 +462,11 @@ public class CivilisationManager {
     }
 
     /**
-     * Applies a nametag prefix for the player based on their civilisation.
-     * The prefix is read from the config (e.g. "&7Example {0}"), color codes are applied,
-     * and the placeholder "{0}" is replaced with the player's name.
-     * The prefix is then applied via a per-player scoreboard team.
+     * Puts the player in their civilisation's nametag team.
+     * The teams themselves are set up from each civilisation's "nametag-prefix" on load and reload.
      */
     public void applyNametagPrefix(Player player) {
-        String civ = getPlayerCivilisation(player);
-        if (civ == null) {
-            return;
-        }
-        String prefix = configManager.getConfig().getString("civilisations." + civ + ".nametag-prefix", "");
-        if (prefix.isEmpty()) {
-            return;
-        }
-        // Replace {0} with the player's name and apply color codes.
-        prefix = ChatColor.translateAlternateColorCodes('&', prefix);
-
-        ScoreboardManager manager = Bukkit.getScoreboardManager();
-        Scoreboard board = manager.getMainScoreboard();
-        // Create a unique team name for the player; ensure it is 16 characters or fewer.
-        String teamName = "nt_" + civ;
-        if (teamName.length() > 16) {
-            teamName = teamName.substring(0, 16);
-        }
-        Team team = board.getTeam(teamName);
-        if (team == null) team = board.registerNewTeam(teamName);
-
-        team.setPrefix(prefix);
-        char color = ChatColor.getLastColors(prefix).charAt(1);
-        ChatColor color1 = ChatColor.getByChar(color);
-        if (color1 != null) team.setColor(color1);
-        team.addEntry(player.getName());
+        nametags.apply(player, getPlayerCivilisation(player));
     }
 
     /**
@@ -0,0 +1,134 @@
+package me.barnaby.civilisation.civilisation;
+
+import me.barnaby.civilisation.config.PluginState;
+import me.barnaby.civilisation.config.StateHolder;
+import me.barnaby.civilisation.session.SessionSlots;
+import me.barnaby.civilisation.storage.Storage;
+import net.luckperms.api.model.group.Group;
+import net.luckperms.api.model.user.User;
+
+import java.util.*;
+
+/**
+ * Index of civilisation membership, backed by the {@link Memberships} in the published plugin state.
+ * Lookups read the current snapshot without locking, so this is safe to query from async chat threads.
+ * Changes build new memberships and swap them into the state.
+ */
+public class MembershipIndex {
+    private final StateHolder state;
+    // Whether an online player's LuckPerms groups have been checked and matched no civilisation
+    // is a per-session cache rather than state, so it's kept as a session slot flag.
+    private final SessionSlots sessionSlots;
+    private final Storage storage;
+
+    public MembershipIndex(StateHolder state, SessionSlots sessionSlots, Storage storage) {
+        this.state = state;
+        this.sessionSlots = sessionSlots;
+        this.storage = storage;
+    }
+
+    /**
+     * Swaps in memberships built by {@link Memberships#fromConfig} and forgets which players were resolved.
+     */
+    public void rebuild(Memberships memberships) {
+        state.update(current -> current.withMemberships(memberships));
+        sessionSlots.clearFlagAll(SessionSlots.FLAG_RESOLVED);
+    }
+
+    /**
+     * Looks up the civilisation of a player without touching LuckPerms.
+     * A match on a legacy name entry is promoted to the UUID index.
+     *
+     * @return the civilisation name, or null if the player is not a known member.
+     */
+    public String getCivilisation(UUID uuid, String name) {
+        Memberships memberships = state.get().memberships();
+        String civ = memberships.getCivilisation(uuid);
+        if (civ != null || name == null) return civ;
+
+        civ = memberships.getCivilisationByName(name);
+        if (civ != null) {
+            addMember(uuid, name, civ);
+        }
+        return civ;
+    }
+
+    /**
+     * Whether the player's groups have already been checked without finding a civilisation.
+     */
+    public boolean isResolved(UUID uuid) {
+        int slot = sessionSlots.getSlot(uuid);
+        return slot != SessionSlots.NO_SLOT && sessionSlots.hasFlag(slot, SessionSlots.FLAG_RESOLVED);
+    }
+
+    /**
+     * Finds the civilisation matching one of the user's inherited LuckPerms groups.
+     * Marks the user as resolved when nothing matches and they are online.
+     *
+     * @return the matching civilisation name, or null if none matches.
+     */
+    public String resolve(User user) {
+        Set<String> groupNames = new HashSet<>();
+        for (Group group : user.getInheritedGroups(user.getQueryOptions())) {
+            groupNames.add(group.getName().toLowerCase());
+        }
+        String civ = state.get().memberships().findCivilisation(groupNames);
+        if (civ == null) {
+            sessionSlots.setFlag(user.getUniqueId(), SessionSlots.FLAG_RESOLVED);
+        }
+        return civ;
+    }
+
+    /**
+     * Records a player as a member of a civilisation, saving the change to storage.
+     *
+     * @return true if the player was not already a member.
+     */
+    public boolean addMember(UUID uuid, String name, String civilisation) {
+        invalidate(uuid);
+        while (true) {
+            PluginState current = state.get();
+            Memberships updated = current.memberships().withMember(uuid, name, civilisation);
+            if (updated == current.memberships()) {
+                return false;
+            }
+            if (state.compareAndSet(current, current.withMemberships(updated))) {
+                storage.saveMember(uuid, name, civilisation);
+                return !civilisation.equals(current.memberships().getCivilisation(uuid));
+            }
+        }
+    }
+
+    /**
+     * Removes a player from their civilisation, recording the leave in storage.
+     *
+     * @return true if the player was a member.
+     */
+    public boolean removeMember(UUID uuid, String name) {
+        while (true) {
+            PluginState current = state.get();
+            Memberships updated = current.memberships().withoutMember(uuid, name);
+            if (updated == current.memberships()) {
+                return false;
+            }
+            if (state.compareAndSet(current, current.withMemberships(updated))) {
+                storage.removeMember(uuid);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Forgets that a player was resolved with no civilisation, so the next lookup checks LuckPerms again.
+     */
+    public void invalidate(UUID uuid) {
+        sessionSlots.clearFlag(uuid, SessionSlots.FLAG_RESOLVED);
+    }
+
+    /**
+     * Forgets every negative resolution, e.g. after a group's inheritance has changed.
+     */
+    public void invalidateAll() {
+        sessionSlots.clearFlagAll(SessionSlots.FLAG_RESOLVED);
+    }
+}
@@ -0,0 +1,162 @@
+package me.barnaby.civilisation.civilisation;
+
+import me.barnaby.civilisation.storage.StoredMemberships;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.*;
+
+/**
+ * An immutable view of civilisation membership, published as part of the plugin state.
+ * Players are keyed by UUID once they have been seen; legacy names migrated from the
+ * old config player lists are kept as a fallback until that player is first looked up.
+ * Adding a member returns a new instance and leaves this one untouched; the player maps are
+ * {@link ShardedMap}s, so the new instance shares all but one shard of each with this one.
+ */
+public final class Memberships {
+    public static final Memberships EMPTY = new Memberships(ShardedMap.of(Map.of()), ShardedMap.of(Map.of()), List.of(), List.of());
+
+    private final ShardedMap<UUID, String> civilisationByUuid;
+    private final ShardedMap<String, String> civilisationByName;
+    // Civilisation rank groups (lowercase) in config order, so the first matching civilisation wins
+    private final List<Map.Entry<String, String>> rankToCivilisation;
+    // Civilisation names in config order; a civilisation's index is what session slots store
+    private final List<String> civilisations;
+    private final Map<String, Integer> civilisationIndexes;
+
+    private Memberships(ShardedMap<UUID, String> civilisationByUuid, ShardedMap<String, String> civilisationByName,
+                        List<Map.Entry<String, String>> rankToCivilisation, List<String> civilisations) {
+        this(civilisationByUuid, civilisationByName, rankToCivilisation, civilisations, indexesOf(civilisations));
+    }
+
+    private Memberships(ShardedMap<UUID, String> civilisationByUuid, ShardedMap<String, String> civilisationByName,
+                        List<Map.Entry<String, String>> rankToCivilisation, List<String> civilisations,
+                        Map<String, Integer> civilisationIndexes) {
+        this.civilisationByUuid = civilisationByUuid;
+        this.civilisationByName = civilisationByName;
+        this.rankToCivilisation = rankToCivilisation;
+        this.civilisations = civilisations;
+        this.civilisationIndexes = civilisationIndexes;
+    }
+
+    private static Map<String, Integer> indexesOf(List<String> civilisations) {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < civilisations.size(); i++) {
+            indexes.put(civilisations.get(i), i);
+        }
+        return Map.copyOf(indexes);
+    }
+
+    /**
+     * Builds memberships from the civilisations section of the config and the members in storage.
+     * Members of civilisations that are no longer configured are left out.
+     */
+    public static Memberships fromConfig(FileConfiguration config, StoredMemberships stored) {
+        ConfigurationSection civilisations = config.getConfigurationSection("civilisations");
+        if (civilisations == null) return EMPTY;
+
+        List<Map.Entry<String, String>> ranks = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (String civName : civilisations.getKeys(false)) {
+            names.add(civName);
+            String civRank = config.getString("civilisations." + civName + ".rank");
+            if (civRank != null) {
+                ranks.add(Map.entry(civRank.toLowerCase(), civName));
+            }
+        }
+
+        Set<String> configured = new HashSet<>(names);
+        Map<UUID, String> byUuid = new HashMap<>();
+        Map<String, String> byName = new HashMap<>();
+        stored.members().forEach((uuid, member) -> {
+            if (!configured.contains(member.civilisation())) return;
+            byUuid.put(uuid, member.civilisation());
+            byName.put(member.name(), member.civilisation());
+        });
+        stored.legacyMembers().forEach((playerName, civName) -> {
+            if (configured.contains(civName)) {
+                byName.putIfAbsent(playerName, civName);
+            }
+        });
+        return new Memberships(ShardedMap.of(byUuid), ShardedMap.of(byName), List.copyOf(ranks), List.copyOf(names));
+    }
+
+    /**
+     * Gets the civilisation a player is known by UUID to belong to.
+     *
+     * @return the civilisation name, or null if the player has not been seen as a member.
+     */
+    public String getCivilisation(UUID uuid) {
+        return civilisationByUuid.get(uuid);
+    }
+
+    /**
+     * Gets the civilisation listed for a player name in the config, or null.
+     */
+    public String getCivilisationByName(String name) {
+        return name == null ? null : civilisationByName.get(name);
+    }
+
+    /**
+     * Finds the first civilisation, in config order, whose rank is one of the given lowercase group names.
+     */
+    public String findCivilisation(Set<String> groupNames) {
+        for (Map.Entry<String, String> entry : rankToCivilisation) {
+            if (groupNames.contains(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns memberships with the player recorded as a member of the civilisation,
+     * or this instance if they already are.
+     */
+    public Memberships withMember(UUID uuid, String name, String civilisation) {
+        ShardedMap<UUID, String> byUuid = civilisationByUuid.with(uuid, civilisation);
+        ShardedMap<String, String> byName = civilisationByName.with(name, civilisation);
+        if (byUuid == civilisationByUuid && byName == civilisationByName) {
+            return this;
+        }
+        return new Memberships(byUuid, byName, rankToCivilisation, civilisations, civilisationIndexes);
+    }
+
+    /**
+     * Returns memberships without the player, or this instance if they aren't a member.
+     * Their name entry is dropped too if it points at the same civilisation.
+     */
+    public Memberships withoutMember(UUID uuid, String name) {
+        String civilisation = civilisationByUuid.get(uuid);
+        if (civilisation == null) return this;
+
+        ShardedMap<String, String> byName = name != null && civilisation.equals(civilisationByName.get(name))
+                ? civilisationByName.without(name) : civilisationByName;
+        return new Memberships(civilisationByUuid.without(uuid), byName, rankToCivilisation, civilisations, civilisationIndexes);
+    }
+
+    /**
+     * Whether a civilisation has a rank group, so its membership follows LuckPerms.
+     */
+    public boolean hasRank(String civilisation) {
+        for (Map.Entry<String, String> entry : rankToCivilisation) {
+            if (entry.getValue().equals(civilisation)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets a civilisation's index in config order, or -1 if it isn't configured.
+     */
+    public int indexOf(String civilisation) {
+        Integer index = civilisationIndexes.get(civilisation);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Gets the civilisation at an index from {@link #indexOf}, or null if the index is out of range.
+     */
+    public String getCivilisationName(int index) {
+        return index >= 0 && index < civilisations.size() ? civilisations.get(index) : null;
+    }
+}
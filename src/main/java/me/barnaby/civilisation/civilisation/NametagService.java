@@ -0,0 +1,183 @@
+package me.barnaby.civilisation.civilisation;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+
+import java.util.*;
+
+/**
+ * Keeps one main-scoreboard team per civilisation, styled from its "nametag-prefix".
+ * <p>
+ * Teams are created and configured when the config is loaded or reloaded, and on reload only the
+ * properties that changed are written. Team IDs are derived from a hash of the civilisation name and
+ * probed on collision, so every civilisation gets its own team however long its name is.
+ * Joining players are then just added to their civilisation's team. All methods must be called on the main thread.
+ * </p>
+ */
+public class NametagService {
+    private static final String TEAM_PREFIX = "nt_";
+
+    private final Plugin plugin;
+    // Team and applied style of each civilisation with a nametag prefix
+    private final Map<String, Team> teams = new HashMap<>();
+    private final Map<String, Style> styles = new HashMap<>();
+
+    /**
+     * The translated prefix of a team and the colour taken from it (null if the prefix has none).
+     */
+    private record Style(String prefix, ChatColor color) {
+    }
+
+    public NametagService(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Creates, updates or removes civilisation teams to match the config.
+     */
+    public void reload(FileConfiguration config) {
+        Scoreboard board = Bukkit.getScoreboardManager().getMainScoreboard();
+        ConfigurationSection civilisations = config.getConfigurationSection("civilisations");
+        List<String> civNames = civilisations == null ? List.of() : new ArrayList<>(civilisations.getKeys(false));
+
+        Map<String, String> teamIds = assignTeamIds(civNames);
+        Set<String> configured = new HashSet<>();
+        for (String civ : civNames) {
+            String rawPrefix = config.getString("civilisations." + civ + ".nametag-prefix", "");
+            if (rawPrefix.isEmpty()) continue;
+
+            String prefix = ChatColor.translateAlternateColorCodes('&', rawPrefix);
+            Style style = new Style(prefix, getLastColor(prefix));
+            configured.add(civ);
+
+            Team team = teams.get(civ);
+            String teamId = teamIds.get(civ);
+            if (team == null || !team.getName().equals(teamId)) {
+                if (team != null) unregister(team);
+                team = board.getTeam(teamId);
+                if (team == null) team = board.registerNewTeam(teamId);
+                teams.put(civ, team);
+                styles.remove(civ);
+                removeLegacyTeam(board, civ, teamIds.values());
+            }
+            applyStyle(team, styles.get(civ), style);
+            styles.put(civ, style);
+        }
+
+        // Civilisations that were removed or lost their prefix
+        Iterator<Map.Entry<String, Team>> iterator = teams.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Team> entry = iterator.next();
+            if (!configured.contains(entry.getKey())) {
+                unregister(entry.getValue());
+                styles.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Puts a player in their civilisation's team, if it has one.
+     */
+    public void apply(Player player, String civilisation) {
+        Team team = civilisation == null ? null : teams.get(civilisation);
+        if (team != null && !team.hasEntry(player.getName())) {
+            team.addEntry(player.getName());
+        }
+    }
+
+    /**
+     * Takes a player out of whichever civilisation team they are in, e.g. after they left their civilisation.
+     */
+    public void remove(Player player) {
+        for (Team team : teams.values()) {
+            if (team.hasEntry(player.getName())) {
+                team.removeEntry(player.getName());
+            }
+        }
+    }
+
+    /**
+     * Writes only the team properties that differ from what was applied last.
+     */
+    private static void applyStyle(Team team, Style applied, Style style) {
+        if (applied == null || !applied.prefix().equals(style.prefix())) {
+            team.setPrefix(style.prefix());
+        }
+        if (applied == null || applied.color() != style.color()) {
+            team.setColor(style.color() != null ? style.color() : ChatColor.RESET);
+        }
+    }
+
+    /**
+     * Gives every civilisation a distinct team ID of the form nt_ + 8 hex digits.
+     * IDs come from the name's hash, stepping on to the next value on a collision.
+     */
+    private static Map<String, String> assignTeamIds(List<String> civNames) {
+        List<String> sorted = new ArrayList<>(civNames);
+        Collections.sort(sorted); // Probing in a fixed order keeps IDs stable when the config is reordered
+        Map<String, String> ids = new HashMap<>();
+        Set<String> taken = new HashSet<>();
+        for (String civ : sorted) {
+            int hash = civ.hashCode();
+            String id;
+            do {
+                id = TEAM_PREFIX + String.format("%08x", hash++);
+            } while (!taken.add(id));
+            ids.put(civ, id);
+        }
+        return ids;
+    }
+
+    /**
+     * Finds the last colour (not formatting) code in a translated string.
+     *
+     * @return the colour, or null if the string sets none.
+     */
+    static ChatColor getLastColor(String text) {
+        ChatColor color = null;
+        for (int i = 0; i < text.length() - 1; i++) {
+            if (text.charAt(i) != ChatColor.COLOR_CHAR) continue;
+            char code = text.charAt(++i);
+            if (code == 'x' || code == 'X') {
+                // Hex colours (§x§r§r§g§g§b§b) have no team colour equivalent
+                i += 12;
+                continue;
+            }
+            ChatColor candidate = ChatColor.getByChar(code);
+            if (candidate != null && candidate.isColor()) {
+                color = candidate;
+            }
+        }
+        return color;
+    }
+
+    /**
+     * Removes the team the old "nt_" + name scheme (truncated to 16 characters) created, if it isn't still in use.
+     */
+    private void removeLegacyTeam(Scoreboard board, String civ, Collection<String> teamIds) {
+        String legacyId = TEAM_PREFIX + civ;
+        if (legacyId.length() > 16) legacyId = legacyId.substring(0, 16);
+        if (teamIds.contains(legacyId)) return;
+
+        Team legacy = board.getTeam(legacyId);
+        if (legacy != null) {
+            plugin.getLogger().info("Removing old nametag team '" + legacyId + "'.");
+            unregister(legacy);
+        }
+    }
+
+    private static void unregister(Team team) {
+        try {
+            team.unregister();
+        } catch (IllegalStateException ignored) {
+            // Already unregistered
+        }
+    }
+}
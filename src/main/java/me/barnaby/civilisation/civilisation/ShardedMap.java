@@ -0,0 +1,73 @@
+package me.barnaby.civilisation.civilisation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable map split into about sqrt(n) shards by key hash.
+ * Adding or removing an entry copies only the shard array and the one shard it falls in,
+ * sharing every other shard with this instance, so a change costs O(sqrt(n)) rather than O(n).
+ */
+final class ShardedMap<K, V> {
+    private static final int MIN_SHARDS = 16;
+
+    // Shards are never modified once the map holding them has been built
+    private final Map<K, V>[] shards;
+
+    private ShardedMap(Map<K, V>[] shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Builds a map holding the given entries, sized for them.
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> ShardedMap<K, V> of(Map<K, V> entries) {
+        int count = Integer.highestOneBit(Math.max(MIN_SHARDS, (int) Math.sqrt(entries.size())) * 2 - 1);
+        Map<K, V>[] shards = new Map[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new HashMap<>();
+        }
+        entries.forEach((key, value) -> shards[indexFor(key, count)].put(key, value));
+        return new ShardedMap<>(shards);
+    }
+
+    V get(Object key) {
+        return shards[indexFor(key, shards.length)].get(key);
+    }
+
+    /**
+     * Returns a map with the key set to the value, or this instance if it already is.
+     */
+    ShardedMap<K, V> with(K key, V value) {
+        int index = indexFor(key, shards.length);
+        if (value.equals(shards[index].get(key))) return this;
+
+        Map<K, V> shard = new HashMap<>(shards[index]);
+        shard.put(key, value);
+        return replace(index, shard);
+    }
+
+    /**
+     * Returns a map without the key, or this instance if it isn't present.
+     */
+    ShardedMap<K, V> without(K key) {
+        int index = indexFor(key, shards.length);
+        if (!shards[index].containsKey(key)) return this;
+
+        Map<K, V> shard = new HashMap<>(shards[index]);
+        shard.remove(key);
+        return replace(index, shard);
+    }
+
+    private ShardedMap<K, V> replace(int index, Map<K, V> shard) {
+        Map<K, V>[] copy = shards.clone();
+        copy[index] = shard;
+        return new ShardedMap<>(copy);
+    }
+
+    private static int indexFor(Object key, int count) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (count - 1);
+    }
+}
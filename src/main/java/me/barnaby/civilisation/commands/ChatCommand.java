@@ -1,9 +1,9 @@
 package me.barnaby.civilisation.commands;
 
 import me.barnaby.civilisation.Civilisation;
-import me.barnaby.civilisation.chat.ChatManager;
 import me.barnaby.civilisation.chat.ChatType;
 import me.barnaby.civilisation.config.ConfigManager;
+import me.barnaby.civilisation.util.StaffUtil;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -37,7 +37,7 @@ public class ChatCommand implements CommandExecutor {
             ChatType chatType = ChatType.valueOf(args[0].toUpperCase());
 
             // Ensure only staff can switch to staff chat
-            if (chatType == ChatType.STAFF && !player.hasPermission("civilisation.staff")) {
+            if (chatType == ChatType.STAFF && !player.hasPermission(StaffUtil.STAFF_PERMISSION)) {
                 player.sendMessage(configManager.getMessage("chat.staff_no_permission"));
                 return true;
             }
@@ -48,7 +48,7 @@ public class ChatCommand implements CommandExecutor {
                 return true;
             }
 
-            ChatManager.setChatChannel(player, chatType);
+            civilisation.getChatManager().setChatChannel(player, chatType);
             player.sendMessage(configManager.getMessage("chat.success", chatType.name()));
 
         } catch (IllegalArgumentException e) {
@@ -1,11 +1,18 @@
 package me.barnaby.civilisation.commands;
 
 import me.barnaby.civilisation.Civilisation;
+import me.barnaby.civilisation.metrics.LatencyHistogram;
+import me.barnaby.civilisation.metrics.MetricsRegistry;
+import me.barnaby.civilisation.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 
+import java.util.Map;
+import java.util.UUID;
+
 public class CivilisationCommand implements CommandExecutor {
 
     private final Civilisation civilisation;
@@ -34,9 +41,34 @@ public class CivilisationCommand implements CommandExecutor {
                     sender.sendMessage(ChatColor.RED + "You do not have permission to reload this plugin.");
                     return true;
                 }
-                civilisation.reloadCivilisationsConfig();
-                sender.sendMessage(ChatColor.GREEN + "Civilisation messages reloaded successfully!");
-                sender.sendMessage(ChatColor.GRAY + "" + ChatColor.ITALIC + "Some changes still might require a restart or rejoin!");
+                civilisation.reloadCivilisationsConfig().whenComplete((changed, error) -> {
+                    if (error != null) {
+                        sender.sendMessage(ChatColor.RED + "Could not reload config.yml, the current config is still in use. See the console for details.");
+                    } else if (changed.isEmpty()) {
+                        sender.sendMessage(ChatColor.GREEN + "Civilisation config reloaded, nothing has changed.");
+                    } else {
+                        sender.sendMessage(ChatColor.GREEN + "Civilisation config reloaded! Changed: " + String.join(", ", changed));
+                        sender.sendMessage(ChatColor.GRAY + "" + ChatColor.ITALIC + "Some changes still might require a restart or rejoin!");
+                    }
+                });
+                return true;
+            }
+            // The timers subcommand, listing everything pending on the timer wheel
+            else if (args[0].equalsIgnoreCase("timers")) {
+                if (!sender.hasPermission("civilisation.reload")) {
+                    sender.sendMessage(ChatColor.RED + "You do not have permission to view the plugin's timers.");
+                    return true;
+                }
+                sendTimers(sender);
+                return true;
+            }
+            // The stats subcommand, showing handler timings and counters
+            else if (args[0].equalsIgnoreCase("stats")) {
+                if (!sender.hasPermission("civilisation.reload")) {
+                    sender.sendMessage(ChatColor.RED + "You do not have permission to view the plugin's stats.");
+                    return true;
+                }
+                sendStats(sender);
                 return true;
             }
             // If the argument isn't recognized, show an error message.
@@ -45,8 +77,78 @@ public class CivilisationCommand implements CommandExecutor {
                 return false;
             }
         }
+        // Two arguments provided
+        else if (args.length == 2 && args[0].equalsIgnoreCase("members")) {
+            if (!sender.hasPermission("civilisation.reload")) {
+                sender.sendMessage(ChatColor.RED + "You do not have permission to view civilisation members.");
+                return true;
+            }
+            if (civilisation.getConfigManager().getState().memberships().indexOf(args[1]) < 0) {
+                sender.sendMessage(ChatColor.RED + "There is no civilisation called '" + args[1] + "'.");
+                return true;
+            }
+            civilisation.getCivilisationManager().getMembers(args[1]).whenCompleteAsync((members, error) -> {
+                if (error != null) {
+                    sender.sendMessage(ChatColor.RED + "Could not look up the members, check the console.");
+                    error.printStackTrace();
+                    return;
+                }
+                sendMembers(sender, args[1], members);
+            }, runnable -> Bukkit.getScheduler().runTask(civilisation, runnable));
+            return true;
+        }
         // If too many arguments are provided, show a usage message.
         sender.sendMessage(ChatColor.RED + "Incorrect usage. Use /" + label + " for help.");
         return false;
     }
+
+    /**
+     * Lists the known members of a civilisation, with the online ones highlighted.
+     */
+    private void sendMembers(CommandSender sender, String civName, Map<UUID, String> members) {
+        sender.sendMessage(ChatColor.GOLD + civName + ChatColor.GRAY + " has " + ChatColor.YELLOW + members.size()
+                + ChatColor.GRAY + " known member(s):");
+        StringBuilder list = new StringBuilder();
+        for (Map.Entry<UUID, String> member : members.entrySet()) {
+            if (!list.isEmpty()) list.append(ChatColor.GRAY).append(", ");
+            list.append(Bukkit.getPlayer(member.getKey()) != null ? ChatColor.GREEN : ChatColor.WHITE).append(member.getValue());
+        }
+        if (!list.isEmpty()) sender.sendMessage(list.toString());
+    }
+
+    /**
+     * Shows the count, p50, p99 and max of every timed handler, followed by the counters.
+     * Percentiles are accurate to within a factor of two.
+     */
+    private void sendStats(CommandSender sender) {
+        MetricsRegistry metrics = civilisation.getMetrics();
+        sender.sendMessage(ChatColor.GOLD + "" + ChatColor.STRIKETHROUGH + "---------------------------");
+        for (LatencyHistogram.Snapshot timer : metrics.getTimers()) {
+            if (timer.count() == 0) continue;
+            sender.sendMessage(ChatColor.AQUA + timer.name()
+                    + ChatColor.GRAY + " x" + timer.count()
+                    + " | p50 " + ChatColor.YELLOW + MetricsRegistry.formatNanos(timer.p50Nanos())
+                    + ChatColor.GRAY + " p99 " + ChatColor.YELLOW + MetricsRegistry.formatNanos(timer.p99Nanos())
+                    + ChatColor.GRAY + " max " + ChatColor.YELLOW + MetricsRegistry.formatNanos(timer.maxNanos()));
+        }
+        metrics.getCounters().forEach((name, value) ->
+                sender.sendMessage(ChatColor.AQUA + name + ChatColor.GRAY + ": " + ChatColor.YELLOW + value));
+        sender.sendMessage(ChatColor.GOLD + "" + ChatColor.STRIKETHROUGH + "---------------------------");
+    }
+
+    /**
+     * Lists the pending tasks on the timer wheel, soonest first, with their run times.
+     */
+    private void sendTimers(CommandSender sender) {
+        sender.sendMessage(ChatColor.GOLD + "" + ChatColor.STRIKETHROUGH + "---------------------------");
+        for (ScheduledTask task : civilisation.getTimerWheel().getPendingTasks()) {
+            sender.sendMessage(ChatColor.AQUA + task.getName()
+                    + ChatColor.GRAY + " in " + ChatColor.YELLOW + task.getTicksUntilRun() + "t"
+                    + (task.isRepeating() ? ChatColor.GRAY + " every " + ChatColor.YELLOW + task.getPeriodTicks() + "t" : "")
+                    + ChatColor.GRAY + " | runs " + task.getRuns()
+                    + String.format(", last %.2fms, max %.2fms", task.getLastRunNanos() / 1e6, task.getMaxRunNanos() / 1e6)
+                    + (task.getOverruns() > 0 ? ChatColor.RED + ", " + task.getOverruns() + " overruns" : ""));
+        }
+        sender.sendMessage(ChatColor.GOLD + "" + ChatColor.STRIKETHROUGH + "---------------------------");
+    }
 }
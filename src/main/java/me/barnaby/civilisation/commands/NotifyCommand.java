@@ -2,11 +2,10 @@ package me.barnaby.civilisation.commands;
 
 import me.barnaby.civilisation.Civilisation;
 import me.barnaby.civilisation.config.ConfigManager;
-import me.barnaby.civilisation.util.ChatUtils;
-import me.barnaby.civilisation.util.StaffUtil;
-import net.md_5.bungee.api.chat.ClickEvent;
-import net.md_5.bungee.api.chat.HoverEvent;
-import net.md_5.bungee.api.chat.hover.content.Text;
+import me.barnaby.civilisation.notification.NotificationDispatcher;
+import me.barnaby.civilisation.notification.StaffAlert;
+import me.barnaby.civilisation.storage.Report;
+import me.barnaby.civilisation.storage.Storage;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -17,9 +16,13 @@ import org.bukkit.entity.Player;
  */
 public class NotifyCommand implements CommandExecutor {
     private final ConfigManager configManager;
+    private final Storage storage;
+    private final NotificationDispatcher dispatcher;
 
     public NotifyCommand(Civilisation civilisation) {
         this.configManager = civilisation.getConfigManager();
+        this.storage = civilisation.getStorage();
+        this.dispatcher = civilisation.getNotificationDispatcher();
     }
 
     @Override
@@ -36,16 +39,19 @@ public class NotifyCommand implements CommandExecutor {
 
         String formattedMessage = configManager.getMessage("notify.alert", player.getName(), notificationMessage);
 
-        // Notify all online staff
-        StaffUtil.getOnlineStaff().forEach(staff -> {
-            staff.sendMessage("");
-            staff.sendMessage(formattedMessage);
-            ChatUtils.sendClickableMessage(staff,
-                    configManager.getMessage("notify.teleport_click"),
-                    new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/teleport " + player.getName()),
-                    new HoverEvent(HoverEvent.Action.SHOW_TEXT, new Text(configManager.getMessage("notify.teleport_hover"))));
-            staff.sendMessage("");
-        });
+        // Queue the alert for online staff
+        NotificationDispatcher.Result result = dispatcher.submit(new StaffAlert(player.getUniqueId(),
+                StaffAlert.topic("notify", player.getName(), notificationMessage),
+                formattedMessage, player.getName(),
+                configManager.getComponents("notify.teleport_click"), configManager.getComponents("notify.teleport_hover")));
+        if (result != NotificationDispatcher.Result.ACCEPTED) {
+            player.sendMessage(configManager.getMessage(result == NotificationDispatcher.Result.RATE_LIMITED
+                    ? "notifications.rate_limited" : "notifications.duplicate"));
+            return true;
+        }
+
+        storage.saveReport(new Report(Report.Type.NOTIFY, player.getUniqueId(), player.getName(),
+                null, null, notificationMessage, System.currentTimeMillis()));
 
         // Notify the sender
         player.sendMessage(configManager.getMessage("notify.success", notificationMessage));
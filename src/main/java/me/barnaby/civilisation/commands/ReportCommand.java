@@ -2,32 +2,51 @@ package me.barnaby.civilisation.commands;
 
 import me.barnaby.civilisation.Civilisation;
 import me.barnaby.civilisation.config.ConfigManager;
-import me.barnaby.civilisation.util.ChatUtils;
+import me.barnaby.civilisation.notification.NotificationDispatcher;
+import me.barnaby.civilisation.notification.StaffAlert;
+import me.barnaby.civilisation.storage.Report;
+import me.barnaby.civilisation.storage.Storage;
 import me.barnaby.civilisation.util.StaffUtil;
-import net.md_5.bungee.api.chat.ClickEvent;
-import net.md_5.bungee.api.chat.HoverEvent;
-import net.md_5.bungee.api.chat.hover.content.Text;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
- * Handles the /report command, allowing players to report others or the server.
+ * Handles the /report command, allowing players to report others or the server,
+ * and the /reports command, letting staff look up the recent reports about a player.
  */
 public class ReportCommand implements CommandExecutor {
+    private static final int HISTORY_LIMIT = 10;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
     private final ConfigManager configManager;
+    private final Storage storage;
+    private final NotificationDispatcher dispatcher;
+    private final Executor mainThread;
 
     public ReportCommand(Civilisation civilisation) {
         this.configManager = civilisation.getConfigManager();
+        this.storage = civilisation.getStorage();
+        this.dispatcher = civilisation.getNotificationDispatcher();
+        this.mainThread = runnable -> Bukkit.getScheduler().runTask(civilisation, runnable);
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (command.getName().equalsIgnoreCase("reports")) {
+            return showHistory(sender, args);
+        }
+
         // Ensure the sender is a player
         if (!(sender instanceof Player player)) {
             sender.sendMessage(configManager.getMessage("general.not_a_player"));
@@ -58,26 +77,64 @@ public class ReportCommand implements CommandExecutor {
                 ? configManager.getMessage("report.server", player.getName(), reason)
                 : configManager.getMessage("report.player", player.getName(), targetName, reason);
 
-        // Notify all online staff
-        StaffUtil.getOnlineStaff().forEach(staff -> {
-            staff.sendMessage("");
-            staff.sendMessage(formattedMessage);
-
-            // Add clickable teleport message if reporting a player
-            if (!isServerReport) {
-                ChatUtils.sendClickableMessage(staff,
-                        configManager.getMessage("report.teleport_click"),
-                        new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/teleport " + targetPlayer.getName()),
-                        new HoverEvent(HoverEvent.Action.SHOW_TEXT, new Text(configManager.getMessage("report.teleport_hover"))));
-            }
+        // Queue the alert for online staff, with a teleport link if reporting a player
+        NotificationDispatcher.Result result = dispatcher.submit(new StaffAlert(player.getUniqueId(),
+                StaffAlert.topic("report", isServerReport ? "server" : targetPlayer.getName(), reason),
+                formattedMessage, isServerReport ? null : targetPlayer.getName(),
+                configManager.getComponents("report.teleport_click"), configManager.getComponents("report.teleport_hover")));
+        if (result != NotificationDispatcher.Result.ACCEPTED) {
+            player.sendMessage(configManager.getMessage(result == NotificationDispatcher.Result.RATE_LIMITED
+                    ? "notifications.rate_limited" : "notifications.duplicate"));
+            return true;
+        }
 
-            staff.sendMessage("");
-        });
+        // Keep the report, so staff can look it up later
+        storage.saveReport(new Report(isServerReport ? Report.Type.SERVER : Report.Type.PLAYER,
+                player.getUniqueId(), player.getName(),
+                isServerReport ? null : targetPlayer.getUniqueId(), isServerReport ? null : targetPlayer.getName(),
+                reason, System.currentTimeMillis()));
 
         // Notify the reporter
         player.sendMessage(configManager.getMessage("report.success"));
 
         return true;
     }
+
+    /**
+     * Shows staff the most recent reports about a player, looked up off the main thread.
+     */
+    private boolean showHistory(CommandSender sender, String[] args) {
+        if (!sender.hasPermission(StaffUtil.STAFF_PERMISSION)) {
+            sender.sendMessage(configManager.getMessage("general.no_permission"));
+            return true;
+        }
+        if (args.length != 1) {
+            sender.sendMessage(configManager.getMessage("general.invalid_usage", "/reports <player>"));
+            return true;
+        }
+
+        String targetName = args[0];
+        storage.getReportsAbout(targetName, HISTORY_LIMIT).whenCompleteAsync((reports, error) -> {
+            if (error != null) {
+                sender.sendMessage(configManager.getMessage("report.history_failed"));
+                error.printStackTrace();
+                return;
+            }
+            sendHistory(sender, targetName, reports);
+        }, mainThread);
+        return true;
+    }
+
+    private void sendHistory(CommandSender sender, String targetName, List<Report> reports) {
+        if (reports.isEmpty()) {
+            sender.sendMessage(configManager.getMessage("report.history_empty", targetName));
+            return;
+        }
+        sender.sendMessage(configManager.getMessage("report.history_header", targetName));
+        for (Report report : reports) {
+            sender.sendMessage(configManager.getMessage("report.history_entry",
+                    DATE_FORMAT.format(Instant.ofEpochMilli(report.createdAt())), report.reporterName(), report.message()));
+        }
+    }
 }
 
@@ -1,17 +1,19 @@
 package me.barnaby.civilisation.config;
 
 import me.barnaby.civilisation.commands.ChatCommand;
+import me.barnaby.civilisation.metrics.MetricsRegistry;
 import net.luckperms.api.LuckPerms;
 import net.luckperms.api.model.group.Group;
-import org.bukkit.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.Plugin;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ConfigManager handles the creation, loading, and saving of configuration files,
@@ -22,20 +24,39 @@ public class ConfigManager {
     private File configFile;
     private FileConfiguration config;
     private final LuckPerms luckPerms;
+    private final ConfigSaver configSaver;
+    // Compiled formats, messages and memberships, read by async chat threads
+    private final StateHolder state = new StateHolder();
+    // Messages without placeholders, parsed into chat components on first use and dropped on reload
+    private final Map<String, BaseComponent[]> components = new ConcurrentHashMap<>();
 
-    // Stores rank formats for quick access
-    private final Map<String, String> rankFormats = new HashMap<>();
-
-    public ConfigManager(Plugin plugin, LuckPerms luckPerms) {
+    public ConfigManager(Plugin plugin, LuckPerms luckPerms, MetricsRegistry metrics) {
         this.plugin = plugin;
         this.luckPerms = luckPerms;
+        this.configSaver = new ConfigSaver(plugin, metrics, () -> config, () -> configFile);
         loadConfig();
     }
 
+    /**
+     * A parsed config with its defaults filled in and its messages and chat formats compiled,
+     * ready to be swapped in by {@link #apply}.
+     *
+     * @param changed whether defaults were added, so the file needs saving.
+     */
+    public record PreparedConfig(FileConfiguration config, Map<String, MessageTemplate> messages,
+                                 Map<String, String> rankFormats, Map<String, MessageTemplate> rankTemplates,
+                                 int localChatDistance, boolean changed) {
+    }
+
     /**
      * Loads the configuration file and initializes required sections.
      */
     public void loadConfig() {
+        // Make sure pending changes reach disk before the file is re-read
+        if (config != null) {
+            configSaver.flush();
+        }
+
         configFile = new File(plugin.getDataFolder(), "config.yml");
 
         // Create a new config file if it doesn't exist
@@ -43,29 +64,97 @@ public class ConfigManager {
             plugin.saveResource("config.yml", false);
         }
 
-        config = YamlConfiguration.loadConfiguration(configFile);
+        apply(prepare(YamlConfiguration.loadConfiguration(configFile)));
+    }
 
+    /**
+     * Fills in defaults and compiles everything the chat path reads. Only touches the given config,
+     * so it can run off the main thread on a freshly parsed config that nothing else sees yet.
+     */
+    public PreparedConfig prepare(FileConfiguration config) {
+        String before = config.saveToString();
 
         // Load all config sections
-        loadRankFormats();
-        loadAirdropConfig();
-        loadEventsConfig();
-        loadMessagesConfig();
+        Map<String, String> rankFormats = loadRankFormats(config);
+        loadAirdropConfig(config);
+        loadEventsConfig(config);
+        Map<String, MessageTemplate> messages = loadMessagesConfig(config);
 
         if (!config.contains("civilisation-join-radius"))
             config.set("civilisation-join-radius", 25);
 
-        saveConfig();
+        // Seconds between metrics.csv dumps; 0 disables them
+        if (!config.contains("metrics.csv_interval"))
+            config.set("metrics.csv_interval", 0);
+
+        // Where memberships and reports are kept: "sqlite" or "log" (memberships only, reports aren't kept)
+        if (!config.contains("storage.type"))
+            config.set("storage.type", "sqlite");
+        if (!config.contains("storage.reader_threads"))
+            config.set("storage.reader_threads", 2);
+
+        // Staff alerts raised within the window are sent as one digest; senders are limited per window
+        if (!config.contains("notifications.digest_window_ticks"))
+            config.set("notifications.digest_window_ticks", 40);
+        if (!config.contains("notifications.sender_limit"))
+            config.set("notifications.sender_limit", 3);
+        if (!config.contains("notifications.sender_window_seconds"))
+            config.set("notifications.sender_window_seconds", 60);
+        if (!config.contains("notifications.duplicate_window_seconds"))
+            config.set("notifications.duplicate_window_seconds", 120);
+
+        // Reload automatically when config.yml is edited, once it has been quiet for debounce_ms
+        if (!config.contains("reload.watch"))
+            config.set("reload.watch", false);
+        if (!config.contains("reload.debounce_ms"))
+            config.set("reload.debounce_ms", 500);
+
+        int localChatDistance = config.getInt("chat.local_distance", 100);
+        Map<String, MessageTemplate> rankTemplates = new HashMap<>();
+        rankFormats.forEach((rank, format) -> rankTemplates.put(rank, compileRankFormat(format)));
+
+        return new PreparedConfig(config, messages, rankFormats, rankTemplates, localChatDistance,
+                !before.equals(config.saveToString()));
+    }
+
+    /**
+     * Swaps a prepared config in. Must be called on the main thread.
+     */
+    public void apply(PreparedConfig prepared) {
+        config = prepared.config();
+
+        // Publish everything the chat path reads in a single swap
+        state.update(current -> current.withConfig(prepared.messages(), prepared.rankFormats(),
+                prepared.rankTemplates(), prepared.localChatDistance()));
+        components.clear();
+
+        if (prepared.changed()) {
+            saveConfig();
+        }
+    }
+
+    /**
+     * Writes any pending changes to disk now. Called before the file is re-read.
+     */
+    public void flush() {
+        configSaver.flush();
+    }
+
+    public File getConfigFile() {
+        return configFile;
     }
 
     /**
-     * Loads rank formats and stores them in memory for quick access.
+     * Loads rank formats, adding a default format for any LuckPerms group that lacks one.
+     *
+     * @return the format of each rank, keyed by lowercase group name.
      */
-    private void loadRankFormats() {
+    private Map<String, String> loadRankFormats(FileConfiguration config) {
         if (!config.contains("chat-format")) {
             config.createSection("chat-format");
         }
 
+        Map<String, String> formats = new HashMap<>();
         for (Group group : luckPerms.getGroupManager().getLoadedGroups()) {
             String rankName = group.getName().toLowerCase();
             String defaultFormat = "&7[" + "&e" + rankName + "&7] &f<player>: &7<message>";
@@ -74,20 +163,22 @@ public class ConfigManager {
                 config.set("chat-format." + rankName, defaultFormat);
             }
 
-            rankFormats.put(rankName, config.getString("chat-format." + rankName));
+            String format = config.getString("chat-format." + rankName);
+            formats.put(rankName, format);
         }
 
-        saveConfig();
+        return formats;
     }
 
     /**
      * Loads airdrop settings and generates example types if not present.
      */
-    private void loadAirdropConfig() {
+    private void loadAirdropConfig(FileConfiguration config) {
         if (!config.contains("airdrop")) {
             config.createSection("airdrop");
 
             config.set("airdrop.interval", 7200); // Default: Every 2 hours
+            config.set("airdrop.interval_jitter", 60); // Seconds either way, so drops don't line up with events
             config.set("airdrop.region.world", "world");
             config.set("airdrop.region.x1", -500);
             config.set("airdrop.region.z1", -500);
@@ -104,13 +195,12 @@ public class ConfigManager {
                 createExampleAirdropType(typesSection, "mystic", 5);
             }
         }
-        saveConfig();
     }
 
     /**
      * Loads event settings and generates example events if not present.
      */
-    private void loadEventsConfig() {
+    private void loadEventsConfig(FileConfiguration config) {
         if (!config.contains("events")) {
             config.createSection("events");
 
@@ -125,15 +215,15 @@ public class ConfigManager {
             addExampleEvent(eventsSection, "draining_aura", "Draining Aura", "BAD",
                     Map.of("MINING_FATIGUE", 1), 600);
         }
-
-        saveConfig();
     }
 
     /**
      * Loads the messages section in config, ensuring future customization of plugin messages.
      * If a message key is missing, it will be added with a default value.
+     *
+     * @return the compiled messages.
      */
-    private void loadMessagesConfig() {
+    private Map<String, MessageTemplate> loadMessagesConfig(FileConfiguration config) {
         if (!config.contains("messages")) {
             config.createSection("messages");
         }
@@ -151,6 +241,10 @@ public class ConfigManager {
         setDefaultMessage(messagesSection, "report.teleport_click", "&7&o(Click to teleport)");
         setDefaultMessage(messagesSection, "report.teleport_hover", "&dClick to teleport to the reported player.");
         setDefaultMessage(messagesSection, "report.success", "&aYour report has been sent to staff!");
+        setDefaultMessage(messagesSection, "report.history_header", "&6Recent reports about &e{0}&6:");
+        setDefaultMessage(messagesSection, "report.history_entry", "&7{0} &8> &f{1}: &6{2}");
+        setDefaultMessage(messagesSection, "report.history_empty", "&7There are no reports about {0}.");
+        setDefaultMessage(messagesSection, "report.history_failed", "&cCould not look up the reports, check the console.");
 
         setDefaultMessage(messagesSection, "notify.default_message", "something is about to happen");
         setDefaultMessage(messagesSection, "notify.alert", "&d&lNOTIFY &8> &f{0} has notified: &d{1}");
@@ -158,6 +252,12 @@ public class ConfigManager {
         setDefaultMessage(messagesSection, "notify.teleport_hover", "&dClick to teleport to the notifier.");
         setDefaultMessage(messagesSection, "notify.success", "&aYou have notified staff: &d{0}");
 
+        setDefaultMessage(messagesSection, "notifications.digest_header", "&c&lSTAFF ALERTS &8> &f{0} new alerts ({1} distinct):");
+        setDefaultMessage(messagesSection, "notifications.digest_more", "&7...and {0} more.");
+        setDefaultMessage(messagesSection, "notifications.repeated", "&7(x{0})");
+        setDefaultMessage(messagesSection, "notifications.rate_limited", "&cYou are alerting staff too often, please wait a moment.");
+        setDefaultMessage(messagesSection, "notifications.duplicate", "&cStaff have already been alerted about that.");
+
         setDefaultMessage(messagesSection, "chat.invalid", "&cInvalid chat type! Use: global, local, civilisation, or staff.");
         setDefaultMessage(messagesSection, "chat.staff_no_permission", "&cYou do not have permission to use staff chat.");
         setDefaultMessage(messagesSection, "chat.civilisation_no_membership", "&cYou are not part of any civilisation!");
@@ -182,7 +282,20 @@ public class ConfigManager {
         setDefaultMessage(messagesSection, "event.success", "&aSuccessfully triggered event {0} for {1}.");
 
 
-        saveConfig();
+        return compileMessages(messagesSection);
+    }
+
+    /**
+     * Parses every message once into a template.
+     */
+    private Map<String, MessageTemplate> compileMessages(ConfigurationSection messagesSection) {
+        Map<String, MessageTemplate> compiled = new HashMap<>();
+        for (String key : messagesSection.getKeys(true)) {
+            if (messagesSection.isString(key)) {
+                compiled.put(key, MessageTemplate.compile(messagesSection.getString(key)));
+            }
+        }
+        return compiled;
     }
 
 
@@ -198,17 +311,23 @@ public class ConfigManager {
         }
     }
 
+    /**
+     * Renders a message from the compiled templates, replacing placeholders {0}, {1}, {2}, etc.
+     */
     public String getMessage(String key, Object... args) {
-        String message = config.getString("messages." + key, "&c[Missing message: " + key + "]");
-        // Replace placeholders {0}, {1}, {2}, etc.
-        for (int i = 0; i < args.length; i++) {
-            message = message.replace("{" + i + "}", args[i].toString());
-        }
-
-        return ChatColor.translateAlternateColorCodes('&', message);
+        return state.get().getMessage(key, args);
     }
 
 
+    /**
+     * Gets a message without placeholders, such as a "(Click to teleport)" label, as chat components.
+     * They are parsed once and cached until the next reload, so the same array is returned every
+     * time and must not be modified.
+     */
+    public BaseComponent[] getComponents(String key) {
+        return components.computeIfAbsent(key, k -> TextComponent.fromLegacyText(getMessage(k)));
+    }
+
     /**
      * Creates a new example airdrop type with predefined loot.
      */
@@ -266,6 +385,7 @@ public class ConfigManager {
             eventSection.set("name", name);
             eventSection.set("type", type);
             eventSection.set("duration", duration);
+            eventSection.set("weight", 1);
 
             if (!effects.isEmpty()) {
                 ConfigurationSection effectsSection = eventSection.createSection("effects");
@@ -333,14 +453,18 @@ public class ConfigManager {
 
     /**
      * Saves the configuration file.
+     * The write is deferred and merged with other saves in the same burst,
+     * then performed off the main thread. Safe to call from any thread.
      */
     public void saveConfig() {
-        try {
-            config.save(configFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save config.yml!");
-            e.printStackTrace();
-        }
+        configSaver.requestSave();
+    }
+
+    /**
+     * Writes any pending changes to disk and stops the background writer.
+     */
+    public void shutdown() {
+        configSaver.shutdown();
     }
 
     /**
@@ -351,10 +475,24 @@ public class ConfigManager {
     }
 
     /**
-     * Gets the chat format for a specified rank.
+     * Gets the current state snapshot. Read everything an async handler needs from one snapshot.
+     */
+    public PluginState getState() {
+        return state.get();
+    }
+
+    /**
+     * Gets the holder the state snapshot is published through.
+     */
+    public StateHolder getStateHolder() {
+        return state;
+    }
+
+    /**
+     * Compiles a rank format, mapping <player> and <message> onto template slots {0} and {1}.
      */
-    public String getRankFormat(String rank) {
-        return rankFormats.getOrDefault(rank.toLowerCase(), "&7<player>: &f<message>");
+    static MessageTemplate compileRankFormat(String format) {
+        return MessageTemplate.compile(format.replace("<player>", "{0}").replace("<message>", "{1}"));
     }
 }
 
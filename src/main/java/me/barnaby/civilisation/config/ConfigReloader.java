@@ -0,0 +1,235 @@
+package me.barnaby.civilisation.config;
+
+import me.barnaby.civilisation.Civilisation;
+import me.barnaby.civilisation.civilisation.Memberships;
+import me.barnaby.civilisation.metrics.LatencyHistogram;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Reloads config.yml without stalling the main thread.
+ * <p>
+ * The file is parsed, filled with defaults and compiled off the main thread, then compared section
+ * by section with the config currently in use. If nothing changed, nothing is swapped. Otherwise
+ * the new config is applied on the main thread in a single task, together with a reload of only the
+ * subsystems whose sections changed, so no tick ever sees half a reload. Reloads are queued, never
+ * run side by side. Optionally, config.yml is watched and reloaded as soon as it's saved.
+ * </p>
+ */
+public class ConfigReloader {
+    private static final Set<String> CIVILISATION_SECTIONS = Set.of("civilisations", "civilisation-prefetch-timeout-ms");
+    private static final Set<String> EVENT_SECTIONS = Set.of("event", "events");
+
+    /**
+     * A config prepared off the main thread, waiting to be applied.
+     *
+     * @param memberships the memberships to swap in, or null if the civilisations didn't change.
+     * @param migrated    whether player lists were moved out of the config, so it needs saving.
+     */
+    private record Reload(ConfigManager.PreparedConfig prepared, Map<String, Object> sections, Set<String> changed,
+                          Memberships memberships, boolean migrated) {
+    }
+
+    private final Civilisation plugin;
+    private final ConfigManager configManager;
+    private final Executor mainThread;
+    private final Executor asyncThread;
+    private final LatencyHistogram reloadTimer;
+    private final LatencyHistogram applyTimer;
+    // The sections of the config in use, only touched on the main thread
+    private Map<String, Object> sections;
+    private CompletableFuture<Set<String>> queue = CompletableFuture.completedFuture(Set.of());
+    private ConfigWatcher watcher;
+    private boolean watching;
+    private long debounceMillis;
+
+    public ConfigReloader(Civilisation plugin) {
+        this.plugin = plugin;
+        this.configManager = plugin.getConfigManager();
+        this.mainThread = runnable -> Bukkit.getScheduler().runTask(plugin, runnable);
+        this.asyncThread = runnable -> Bukkit.getScheduler().runTaskAsynchronously(plugin, runnable);
+        this.reloadTimer = plugin.getMetrics().timer("config.reload");
+        this.applyTimer = plugin.getMetrics().timer("config.reload_apply");
+        this.sections = sections(configManager.getConfig());
+        configureWatcher();
+    }
+
+    /**
+     * Queues a reload of config.yml. Must be called on the main thread.
+     *
+     * @return a future completed on the main thread with the top-level sections that changed,
+     * or exceptionally if the file couldn't be read, in which case the current config is kept.
+     */
+    public CompletableFuture<Set<String>> reload() {
+        queue = queue.handle((changed, error) -> null)
+                .thenComposeAsync(ignored -> start(), mainThread);
+        return queue;
+    }
+
+    private CompletableFuture<Set<String>> start() {
+        long start = System.nanoTime();
+        // Pending changes must reach disk before the file is re-read
+        configManager.flush();
+        File file = configManager.getConfigFile();
+        Map<String, Object> current = sections;
+
+        return CompletableFuture.supplyAsync(() -> prepare(file, current), asyncThread)
+                .thenCompose(reload -> Collections.disjoint(reload.changed(), CIVILISATION_SECTIONS)
+                        ? CompletableFuture.completedFuture(reload)
+                        : plugin.getCivilisationManager().loadMemberships(reload.prepared().config())
+                                .thenApply(memberships -> new Reload(reload.prepared(), reload.sections(),
+                                        reload.changed(), memberships, reload.migrated())))
+                .thenApplyAsync(reload -> {
+                    apply(reload);
+                    reloadTimer.recordSince(start);
+                    return reload.changed();
+                }, mainThread)
+                .whenCompleteAsync((changed, error) -> {
+                    if (error != null) {
+                        plugin.getLogger().severe("Could not reload config.yml, keeping the current config!");
+                        error.printStackTrace();
+                    }
+                }, mainThread);
+    }
+
+    /**
+     * Parses, prepares and diffs the file. Runs off the main thread; the parsed config isn't shared until applied.
+     */
+    private Reload prepare(File file, Map<String, Object> current) {
+        YamlConfiguration parsed = new YamlConfiguration();
+        try {
+            parsed.load(file);
+        } catch (IOException | InvalidConfigurationException e) {
+            throw new CompletionException(e);
+        }
+
+        ConfigManager.PreparedConfig prepared = configManager.prepare(parsed);
+        Set<String> changed = changedSections(current, sections(parsed));
+
+        // Player lists added back by hand are moved to storage before the memberships are built
+        boolean migrated = !Collections.disjoint(changed, CIVILISATION_SECTIONS)
+                && plugin.getCivilisationManager().migratePlayerLists(parsed);
+        return new Reload(prepared, sections(parsed), changed, null, migrated);
+    }
+
+    /**
+     * Swaps in the new config and reloads the subsystems whose sections changed, all in one tick.
+     */
+    private void apply(Reload reload) {
+        if (reload.changed().isEmpty()) {
+            plugin.getLogger().info("Reloaded config.yml, nothing has changed.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Set<String> changed = reload.changed();
+        configManager.apply(reload.prepared());
+        sections = reload.sections();
+        if (reload.migrated()) {
+            configManager.saveConfig();
+        }
+
+        FileConfiguration config = configManager.getConfig();
+        if (reload.memberships() != null) {
+            plugin.getCivilisationManager().reload(config, reload.memberships());
+        }
+        if (changed.contains("airdrop")) {
+            plugin.getAirdropManager().reload();
+        }
+        if (!Collections.disjoint(changed, EVENT_SECTIONS)) {
+            plugin.getEventManager().reload();
+        }
+        if (changed.contains("notifications")) {
+            plugin.getNotificationDispatcher().reload();
+        }
+        if (changed.contains("metrics")) {
+            plugin.getMetricsCsvWriter().setInterval(config.getInt("metrics.csv_interval", 0));
+        }
+        if (changed.contains("reload")) {
+            configureWatcher();
+        }
+        if (changed.contains("storage")) {
+            plugin.getLogger().warning("Storage settings only take effect after a restart.");
+        }
+        applyTimer.recordSince(start);
+        plugin.getLogger().info("Reloaded config.yml, changed: " + String.join(", ", changed) + ".");
+    }
+
+    /**
+     * Starts, restarts or stops watching config.yml to match "reload.watch" and "reload.debounce_ms".
+     */
+    private void configureWatcher() {
+        FileConfiguration config = configManager.getConfig();
+        boolean watch = config.getBoolean("reload.watch", false);
+        long debounce = config.getLong("reload.debounce_ms", 500);
+        if (watch == watching && debounce == debounceMillis) return;
+
+        stopWatcher();
+        watching = watch;
+        debounceMillis = debounce;
+        if (!watch) return;
+
+        watcher = new ConfigWatcher(plugin, configManager.getConfigFile().toPath(), debounce, this::reload);
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not watch config.yml for changes, reload it with /civilisation reload.");
+            e.printStackTrace();
+            watcher = null;
+        }
+    }
+
+    private void stopWatcher() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Stops watching config.yml.
+     */
+    public void shutdown() {
+        stopWatcher();
+        watching = false;
+    }
+
+    /**
+     * Flattens each top-level section into its leaf values, so two parses of the same file compare equal.
+     */
+    private static Map<String, Object> sections(FileConfiguration config) {
+        Map<String, Object> sections = new HashMap<>();
+        for (String key : config.getKeys(false)) {
+            Object value = config.get(key);
+            if (value instanceof ConfigurationSection section) {
+                Map<String, Object> leaves = new HashMap<>(section.getValues(true));
+                // Keep empty sections, but not the section objects themselves, which only compare by identity
+                leaves.replaceAll((path, leaf) -> leaf instanceof ConfigurationSection ? Map.of() : leaf);
+                value = leaves;
+            }
+            sections.put(key, value);
+        }
+        return sections;
+    }
+
+    private static Set<String> changedSections(Map<String, Object> before, Map<String, Object> after) {
+        Set<String> changed = new TreeSet<>();
+        for (String key : after.keySet()) {
+            if (!Objects.equals(before.get(key), after.get(key))) changed.add(key);
+        }
+        for (String key : before.keySet()) {
+            if (!after.containsKey(key)) changed.add(key);
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,124 @@
+package me.barnaby.civilisation.config;
+
+import me.barnaby.civilisation.metrics.LatencyHistogram;
+import me.barnaby.civilisation.metrics.MetricsRegistry;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind persistence for a configuration file.
+ * Save requests only mark the config dirty; bursts of requests are merged into a
+ * single save that is serialised on the main thread a short while later and then
+ * written on a background thread to a temporary file, which is moved over the target.
+ */
+public class ConfigSaver {
+    private static final long SAVE_DELAY_TICKS = 20L;
+    private static final long FLUSH_TIMEOUT_SECONDS = 10L;
+
+    private final Plugin plugin;
+    private final Supplier<FileConfiguration> source;
+    private final Supplier<File> target;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final LongAdder saveRequests;
+    private final LatencyHistogram serialiseTimer;
+    private final LatencyHistogram writeTimer;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Civilisation-ConfigWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ConfigSaver(Plugin plugin, MetricsRegistry metrics, Supplier<FileConfiguration> source, Supplier<File> target) {
+        this.plugin = plugin;
+        this.source = source;
+        this.target = target;
+        this.saveRequests = metrics.counter("config.save_requests");
+        this.serialiseTimer = metrics.timer("config.serialise");
+        this.writeTimer = metrics.timer("config.write");
+    }
+
+    /**
+     * Marks the configuration dirty. Safe to call from any thread.
+     * Only the first request in a burst schedules a save.
+     */
+    public void requestSave() {
+        saveRequests.increment();
+        if (dirty.compareAndSet(false, true) && plugin.isEnabled()) {
+            Bukkit.getScheduler().runTaskLater(plugin, this::saveIfDirty, SAVE_DELAY_TICKS);
+        }
+    }
+
+    /**
+     * Serialises the configuration if it is dirty and queues it for writing.
+     * Must run on the main thread, which is the only thread that mutates the config.
+     */
+    private void saveIfDirty() {
+        if (dirty.getAndSet(false)) {
+            long start = System.nanoTime();
+            String data = source.get().saveToString();
+            serialiseTimer.recordSince(start);
+            File file = target.get();
+            writer.execute(() -> write(data, file));
+        }
+    }
+
+    /**
+     * Writes any pending changes and waits until every queued write has reached disk.
+     * Called before the file is re-read and on shutdown.
+     */
+    public void flush() {
+        saveIfDirty();
+        try {
+            writer.submit(() -> { }).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            plugin.getLogger().severe("Timed out waiting for config.yml to be written!");
+        }
+    }
+
+    /**
+     * Flushes pending changes and stops the writer thread.
+     */
+    public void shutdown() {
+        flush();
+        writer.shutdown();
+    }
+
+    private void write(String data, File file) {
+        long start = System.nanoTime();
+        Path path = file.toPath();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            Files.writeString(temp, data, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not save " + file.getName() + "!");
+            e.printStackTrace();
+        } finally {
+            writeTimer.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package me.barnaby.civilisation.config;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a file with an NIO {@link WatchService} and runs a task on the main thread once it has changed.
+ * <p>
+ * Editors often save in several steps (truncate, write, rename), so changes are debounced: the task
+ * runs only after the file has been quiet for the debounce window. Changes to other files in the
+ * same directory, such as the membership log, are ignored and don't extend the window.
+ * </p>
+ */
+public class ConfigWatcher {
+    private final Plugin plugin;
+    private final Path file;
+    private final long debounceMillis;
+    private final Runnable onChange;
+    private WatchService watchService;
+    private Thread thread;
+
+    public ConfigWatcher(Plugin plugin, Path file, long debounceMillis, Runnable onChange) {
+        this.plugin = plugin;
+        this.file = file;
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.onChange = onChange;
+    }
+
+    /**
+     * Starts watching on a background thread.
+     */
+    public void start() throws IOException {
+        watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this::run, "Civilisation-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching. Changes seen but still within the debounce window are dropped.
+     */
+    public void stop() {
+        if (watchService == null) return;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not stop watching " + file.getFileName() + ".");
+        }
+        thread.interrupt();
+        watchService = null;
+    }
+
+    private void run() {
+        WatchService watchService = this.watchService;
+        try {
+            while (true) {
+                if (!touchesFile(watchService.take())) continue;
+
+                // Wait for the file to be quiet for the whole window before reloading it
+                long deadline = System.currentTimeMillis() + debounceMillis;
+                long remaining;
+                while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+                    WatchKey key = watchService.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (key != null && touchesFile(key)) {
+                        deadline = System.currentTimeMillis() + debounceMillis;
+                    }
+                }
+                if (plugin.isEnabled()) {
+                    Bukkit.getScheduler().runTask(plugin, onChange);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    private boolean touchesFile(WatchKey key) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // An overflow means events were lost, so the file may have changed
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                touched = true;
+            }
+        }
+        key.reset();
+        return touched;
+    }
+}
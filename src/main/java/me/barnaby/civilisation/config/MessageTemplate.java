@@ -0,0 +1,113 @@
+package me.barnaby.civilisation.config;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message parsed once into literal runs and {@code {i}} argument slots.
+ * Literal runs have their colour codes translated when the template is compiled,
+ * so rendering is a single pass that appends literals and arguments into a pre-sized buffer.
+ */
+public final class MessageTemplate {
+    private static final String COLOR_CODES = "0123456789AaBbCcDdEeFfKkLlMmNnOoRrXx";
+
+    // literals.length == slots.length + 1; rendering interleaves literals[i], slots[i], literals[i + 1]...
+    private final String[] literals;
+    private final int[] slots;
+    private final int literalLength;
+
+    private MessageTemplate(String[] literals, int[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compiles a raw message using '&' colour codes and {0}, {1}, ... placeholders.
+     */
+    public static MessageTemplate compile(String raw) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        int literalStart = 0;
+        int i = 0;
+        while (i < raw.length()) {
+            int close = raw.charAt(i) == '{' ? raw.indexOf('}', i + 1) : -1;
+            if (close > i + 1 && close - i <= 4 && isDigits(raw, i + 1, close)) {
+                literals.add(ChatColor.translateAlternateColorCodes('&', raw.substring(literalStart, i)));
+                slots.add(Integer.parseInt(raw, i + 1, close, 10));
+                i = close + 1;
+                literalStart = i;
+            } else {
+                i++;
+            }
+        }
+        literals.add(ChatColor.translateAlternateColorCodes('&', raw.substring(literalStart)));
+
+        int[] slotArray = new int[slots.size()];
+        for (int s = 0; s < slotArray.length; s++) {
+            slotArray[s] = slots.get(s);
+        }
+        return new MessageTemplate(literals.toArray(new String[0]), slotArray);
+    }
+
+    /**
+     * Renders the message, substituting each {i} with args[i].
+     * Arguments have their colour codes translated as they are copied, as the whole
+     * message used to be translated after substitution. Slots without an argument are left as-is.
+     */
+    public String render(Object... args) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+
+        String[] values = new String[args.length];
+        int length = literalLength;
+        for (int i = 0; i < args.length; i++) {
+            values[i] = String.valueOf(args[i]);
+            length += values[i].length();
+        }
+
+        StringBuilder builder = new StringBuilder(length);
+        builder.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            if (slot < values.length) {
+                appendTranslated(builder, values[slot]);
+            } else {
+                builder.append('{').append(slot).append('}');
+            }
+            builder.append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Appends text to the builder, translating '&' colour codes in the same pass.
+     */
+    private static void appendTranslated(StringBuilder builder, String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '&' && i + 1 < length && COLOR_CODES.indexOf(text.charAt(i + 1)) > -1) {
+                builder.append(ChatColor.COLOR_CHAR).append(Character.toLowerCase(text.charAt(++i)));
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+
+    private static boolean isDigits(String raw, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+}
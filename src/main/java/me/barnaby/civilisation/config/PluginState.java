@@ -0,0 +1,68 @@
+package me.barnaby.civilisation.config;
+
+import me.barnaby.civilisation.civilisation.Memberships;
+import org.bukkit.ChatColor;
+
+import java.util.Map;
+
+/**
+ * An immutable snapshot of everything the chat path reads: compiled messages, rank formats,
+ * channel settings and civilisation memberships.
+ * <p>
+ * Snapshots are never modified. A reload or membership change builds a new one and publishes it
+ * through the {@link StateHolder}, so async chat threads can read a consistent state without locks.
+ * Take one snapshot per event and read everything from it.
+ * </p>
+ */
+public record PluginState(Map<String, MessageTemplate> messages,
+                          Map<String, String> rankFormats,
+                          Map<String, MessageTemplate> rankTemplates,
+                          int localChatDistance,
+                          Memberships memberships) {
+    static final String DEFAULT_RANK_FORMAT = "&7<player>: &f<message>";
+    private static final MessageTemplate DEFAULT_RANK_TEMPLATE = ConfigManager.compileRankFormat(DEFAULT_RANK_FORMAT);
+
+    public static final PluginState EMPTY = new PluginState(Map.of(), Map.of(), Map.of(), 100, Memberships.EMPTY);
+
+    /**
+     * Returns a copy of this state with new configuration values and the same memberships.
+     */
+    public PluginState withConfig(Map<String, MessageTemplate> messages, Map<String, String> rankFormats,
+                                  Map<String, MessageTemplate> rankTemplates, int localChatDistance) {
+        return new PluginState(Map.copyOf(messages), Map.copyOf(rankFormats), Map.copyOf(rankTemplates),
+                localChatDistance, memberships);
+    }
+
+    /**
+     * Returns a copy of this state with new memberships.
+     */
+    public PluginState withMemberships(Memberships memberships) {
+        return new PluginState(messages, rankFormats, rankTemplates, localChatDistance, memberships);
+    }
+
+    /**
+     * Renders a message from the compiled templates, replacing placeholders {0}, {1}, {2}, etc.
+     */
+    public String getMessage(String key, Object... args) {
+        MessageTemplate template = messages.get(key);
+        if (template == null) {
+            return ChatColor.translateAlternateColorCodes('&', "&c[Missing message: " + key + "]");
+        }
+        return template.render(args);
+    }
+
+    /**
+     * Gets the chat format for a specified rank.
+     */
+    public String getRankFormat(String rank) {
+        return rankFormats.getOrDefault(rank.toLowerCase(), DEFAULT_RANK_FORMAT);
+    }
+
+    /**
+     * Gets the compiled chat format for a specified rank.
+     * Render it with the player's name as {0} and the chat message as {1}.
+     */
+    public MessageTemplate getRankTemplate(String rank) {
+        return rankTemplates.getOrDefault(rank.toLowerCase(), DEFAULT_RANK_TEMPLATE);
+    }
+}
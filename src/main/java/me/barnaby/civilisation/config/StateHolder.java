@@ -0,0 +1,39 @@
+package me.barnaby.civilisation.config;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * The single reference through which the current {@link PluginState} is published.
+ * Reads are a plain volatile read; writers swap in a new snapshot with compare-and-set,
+ * so concurrent updates (e.g. a reload and a LuckPerms event) never lose each other's changes.
+ */
+public class StateHolder {
+    private final AtomicReference<PluginState> state = new AtomicReference<>(PluginState.EMPTY);
+
+    /**
+     * Gets the current snapshot. Safe to call from any thread.
+     */
+    public PluginState get() {
+        return state.get();
+    }
+
+    /**
+     * Publishes a snapshot derived from the current one. The function may be called more than once
+     * if another thread publishes first, so it must not have side effects.
+     *
+     * @return the published snapshot.
+     */
+    public PluginState update(UnaryOperator<PluginState> update) {
+        return state.updateAndGet(update);
+    }
+
+    /**
+     * Publishes a snapshot only if the current one is still {@code expected}.
+     *
+     * @return whether the snapshot was published.
+     */
+    public boolean compareAndSet(PluginState expected, PluginState updated) {
+        return state.compareAndSet(expected, updated);
+    }
+}
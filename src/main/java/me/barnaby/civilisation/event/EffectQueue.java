@@ -0,0 +1,67 @@
+package me.barnaby.civilisation.event;
+
+import me.barnaby.civilisation.scheduler.ScheduledTask;
+import me.barnaby.civilisation.scheduler.TimerWheel;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A main-thread work queue that spreads jobs across ticks.
+ * Each tick it runs queued jobs until the per-tick time budget is spent, then carries the rest over.
+ * The queue always runs at least one job per tick, so it can't stall on a single slow job.
+ */
+public class EffectQueue {
+    private final Plugin plugin;
+    private final TimerWheel timerWheel;
+    private final Deque<Runnable> jobs = new ArrayDeque<>();
+    private long budgetNanos;
+    private ScheduledTask task;
+
+    public EffectQueue(Plugin plugin, TimerWheel timerWheel, long budgetMillis) {
+        this.plugin = plugin;
+        this.timerWheel = timerWheel;
+        setBudget(budgetMillis);
+    }
+
+    /**
+     * Sets how long, in milliseconds, the queue may run for in a single tick.
+     */
+    public void setBudget(long budgetMillis) {
+        this.budgetNanos = Math.max(1L, budgetMillis) * 1_000_000L;
+    }
+
+    /**
+     * Adds a job to the back of the queue. Must be called on the main thread.
+     */
+    public void submit(Runnable job) {
+        jobs.addLast(job);
+        if (task == null) {
+            task = timerWheel.scheduleRepeating("event-effects", 1L, 1L, this::drain);
+        }
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + budgetNanos;
+        do {
+            Runnable job = jobs.pollFirst();
+            if (job == null) break;
+            try {
+                job.run();
+            } catch (RuntimeException e) {
+                plugin.getLogger().severe("An event job failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        } while (System.nanoTime() < deadline);
+
+        if (jobs.isEmpty()) {
+            task.cancel();
+            task = null;
+        }
+    }
+}
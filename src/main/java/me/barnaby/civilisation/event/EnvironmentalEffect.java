@@ -0,0 +1,26 @@
+package me.barnaby.civilisation.event;
+
+import org.bukkit.ChunkSnapshot;
+
+/**
+ * An effect driven by the environment around each affected player, such as exposure to the sky.
+ * Implementations are evaluated off the main thread against chunk snapshots, so they must not touch the live world.
+ */
+public interface EnvironmentalEffect {
+
+    /**
+     * The id used to refer to this effect from an event's "special_effect" setting.
+     */
+    String getId();
+
+    /**
+     * Works out the damage for a player standing at the given block of a chunk snapshot.
+     *
+     * @param snapshot the snapshot of the chunk the player is standing in
+     * @param localX   the block x within the chunk (0-15)
+     * @param y        the block y, already checked to be inside the world's height range
+     * @param localZ   the block z within the chunk (0-15)
+     * @return the damage to deal, or 0 for none
+     */
+    double getDamage(ChunkSnapshot snapshot, int localX, int y, int localZ);
+}
@@ -0,0 +1,178 @@
+package me.barnaby.civilisation.event;
+
+import me.barnaby.civilisation.civilisation.CivilisationManager;
+import me.barnaby.civilisation.scheduler.ScheduledTask;
+import me.barnaby.civilisation.scheduler.TimerWheel;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.*;
+
+/**
+ * Runs every active environmental effect from one shared timer.
+ * <p>
+ * Each cycle, the positions of affected players are snapshotted once on the main thread,
+ * together with one {@link ChunkSnapshot} per occupied chunk. The effects are then evaluated
+ * off the main thread, and only the resulting damage is applied back on the main thread.
+ * Active effects are keyed by effect and civilisation, so triggering an effect that is already
+ * running refreshes its duration instead of stacking a second one.
+ * </p>
+ */
+public class EnvironmentalEffectEngine {
+    private static final long CYCLE_TICKS = 600L; // 30 seconds
+
+    private final Plugin plugin;
+    private final TimerWheel timerWheel;
+    private final CivilisationManager civilisationManager;
+    private final Map<String, EnvironmentalEffect> effects = new HashMap<>();
+    // Active effects keyed by "<effect id>:<civilisation or *>", only touched on the main thread
+    private final Map<String, ActiveEffect> active = new LinkedHashMap<>();
+    private ScheduledTask task;
+
+    private static final class ActiveEffect {
+        private final EnvironmentalEffect effect;
+        private final String civilisation;
+        private int remainingCycles;
+
+        private ActiveEffect(EnvironmentalEffect effect, String civilisation, int remainingCycles) {
+            this.effect = effect;
+            this.civilisation = civilisation;
+            this.remainingCycles = remainingCycles;
+        }
+    }
+
+    /**
+     * Where an affected player stood at the start of a cycle, and which effects apply to them.
+     */
+    private record PlayerSample(UUID player, ChunkSnapshot snapshot, int localX, int y, int localZ,
+                                Set<EnvironmentalEffect> effects) {
+    }
+
+    public EnvironmentalEffectEngine(Plugin plugin, TimerWheel timerWheel, CivilisationManager civilisationManager) {
+        this.plugin = plugin;
+        this.timerWheel = timerWheel;
+        this.civilisationManager = civilisationManager;
+        register(new SunsWrathEffect());
+    }
+
+    /**
+     * Makes an effect available to events by its id.
+     */
+    public void register(EnvironmentalEffect effect) {
+        effects.put(effect.getId(), effect);
+    }
+
+    /**
+     * Gets a registered effect by id.
+     *
+     * @return the effect, or null if none is registered under that id.
+     */
+    public EnvironmentalEffect getEffect(String id) {
+        return id == null ? null : effects.get(id.toUpperCase());
+    }
+
+    /**
+     * Converts an event duration into a whole number of effect cycles (at least one).
+     */
+    public int getCycles(int durationSeconds) {
+        return (int) Math.max(1, durationSeconds * 20L / CYCLE_TICKS);
+    }
+
+    /**
+     * Starts an effect for a civilisation (or everyone, if null) for the given number of cycles.
+     * If the same effect is already running for that target, its remaining duration is extended instead.
+     */
+    public void activate(EnvironmentalEffect effect, String civilisation, int cycles) {
+        String key = effect.getId() + ":" + (civilisation == null ? "*" : civilisation);
+        ActiveEffect existing = active.get(key);
+        if (existing != null) {
+            existing.remainingCycles = Math.max(existing.remainingCycles, cycles);
+        } else {
+            active.put(key, new ActiveEffect(effect, civilisation, cycles));
+        }
+
+        if (task == null) {
+            task = timerWheel.schedule("environmental-effects", CYCLE_TICKS, CYCLE_TICKS, 0L, 5, this::runCycle);
+        }
+    }
+
+    /**
+     * Snapshots affected players on the main thread and evaluates them asynchronously.
+     */
+    private void runCycle() {
+        // A set per player, so a global and a civilisation-wide run of the same effect don't both apply
+        Map<Player, Set<EnvironmentalEffect>> affected = new HashMap<>();
+        Iterator<ActiveEffect> iterator = active.values().iterator();
+        while (iterator.hasNext()) {
+            ActiveEffect activeEffect = iterator.next();
+            Collection<? extends Player> players = activeEffect.civilisation == null
+                    ? Bukkit.getOnlinePlayers()
+                    : civilisationManager.getOnlineMembers(activeEffect.civilisation);
+            for (Player player : players) {
+                affected.computeIfAbsent(player, k -> new LinkedHashSet<>()).add(activeEffect.effect);
+            }
+            if (--activeEffect.remainingCycles <= 0) {
+                iterator.remove();
+            }
+        }
+        if (active.isEmpty()) {
+            task.cancel();
+            task = null;
+        }
+        if (affected.isEmpty()) return;
+
+        // One snapshot per occupied chunk, shared by every player standing in it
+        Map<String, ChunkSnapshot> snapshots = new HashMap<>();
+        List<PlayerSample> samples = new ArrayList<>(affected.size());
+        affected.forEach((player, playerEffects) -> {
+            if (player.isDead()) return;
+            Location location = player.getLocation();
+            World world = location.getWorld();
+            int y = location.getBlockY();
+            if (world == null || y < world.getMinHeight() || y >= world.getMaxHeight()) return;
+
+            int chunkX = location.getBlockX() >> 4, chunkZ = location.getBlockZ() >> 4;
+            ChunkSnapshot snapshot = snapshots.computeIfAbsent(world.getName() + ":" + chunkX + ":" + chunkZ,
+                    key -> world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+            samples.add(new PlayerSample(player.getUniqueId(), snapshot,
+                    location.getBlockX() & 15, y, location.getBlockZ() & 15, playerEffects));
+        });
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            Map<UUID, Double> damage = evaluate(samples);
+            if (!damage.isEmpty()) {
+                Bukkit.getScheduler().runTask(plugin, () -> applyDamage(damage));
+            }
+        });
+    }
+
+    /**
+     * Works out the damage for each sampled player. Runs off the main thread.
+     */
+    private static Map<UUID, Double> evaluate(List<PlayerSample> samples) {
+        Map<UUID, Double> damage = new HashMap<>();
+        for (PlayerSample sample : samples) {
+            double total = 0;
+            for (EnvironmentalEffect effect : sample.effects()) {
+                total += effect.getDamage(sample.snapshot(), sample.localX(), sample.y(), sample.localZ());
+            }
+            if (total > 0) {
+                damage.put(sample.player(), total);
+            }
+        }
+        return damage;
+    }
+
+    private void applyDamage(Map<UUID, Double> damage) {
+        damage.forEach((uuid, amount) -> {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null && !player.isDead()) {
+                player.damage(amount);
+            }
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package me.barnaby.civilisation.event;
+
+import org.bukkit.potion.PotionEffect;
+
+import java.util.List;
+
+/**
+ * An event compiled from its "events.&lt;key&gt;" config section.
+ * The potion effects are built once and the same instances are given to every affected player.
+ *
+ * @param key           the config key of the event
+ * @param name          the display name used in announcements
+ * @param type          GOOD, BAD or NEUTRAL
+ * @param duration      the duration in seconds
+ * @param weight        the relative chance of the event being picked
+ * @param effects       the potion effects applied to affected players
+ * @param specialEffect the id of an environmental effect, or null for none
+ */
+public record EventDefinition(String key, String name, String type, int duration, int weight,
+                              List<PotionEffect> effects, String specialEffect) {
+}
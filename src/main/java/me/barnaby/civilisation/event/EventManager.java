@@ -3,151 +3,205 @@ package me.barnaby.civilisation.event;
 import me.barnaby.civilisation.Civilisation;
 import me.barnaby.civilisation.civilisation.CivilisationManager;
 import me.barnaby.civilisation.config.ConfigManager;
-import me.barnaby.civilisation.util.ChatUtils;
+import me.barnaby.civilisation.metrics.LatencyHistogram;
+import me.barnaby.civilisation.scheduler.ScheduledTask;
+import me.barnaby.civilisation.scheduler.TimerWheel;
+import me.barnaby.civilisation.util.WeightedSampler;
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.plugin.Plugin;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages random civilization events, applying effects and announcements.
+ * Effects are applied through a tick-budgeted queue so a large server doesn't take the whole hit in one tick.
  */
 public class EventManager {
     private final Plugin plugin;
     private final ConfigManager configManager;
     private final CivilisationManager civilisationManager;
-    private final Random random = new Random();
+    private final TimerWheel timerWheel;
+    private final EnvironmentalEffectEngine environmentalEffects;
+    private final EffectQueue effectQueue;
+    // Compiled events, replaced as a whole on every (re)load
+    private volatile Map<String, EventDefinition> definitions = Map.of();
+    // Event samplers keyed by the requested type list, built on first use after each (re)load
+    private final Map<String, WeightedSampler<String>> eventSamplers = new ConcurrentHashMap<>();
+    private int staggerTicks;
+    private ScheduledTask eventTimer;
+    private final LatencyHistogram triggerTimer;
 
     public EventManager(Civilisation plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
         this.civilisationManager = plugin.getCivilisationManager();
-        startEventTimer();
+        this.timerWheel = plugin.getTimerWheel();
+        this.triggerTimer = plugin.getMetrics().timer("event.trigger");
+        this.environmentalEffects = new EnvironmentalEffectEngine(plugin, timerWheel, civilisationManager);
+        this.effectQueue = new EffectQueue(plugin, timerWheel, 2);
+        reload();
     }
 
     /**
-     * Starts the automatic event trigger, running every X ticks.
+     * Recompiles the event definitions and discards the event samplers
+     * so they are rebuilt from the current configuration. The event timer picks up a changed interval.
      */
-    private void startEventTimer() {
-        int interval = configManager.getConfig().getInt("event.interval", 7200); // Default: 2 hours
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                triggerRandomEvents();
+    public void reload() {
+        scheduleEventTimer();
+        effectQueue.setBudget(configManager.getConfig().getLong("event.tick_budget_ms", 2));
+        staggerTicks = Math.max(0, configManager.getConfig().getInt("event.stagger_ticks", 20));
+
+        Map<String, EventDefinition> compiled = new HashMap<>();
+        ConfigurationSection eventsSection = configManager.getConfig().getConfigurationSection("events");
+        if (eventsSection != null) {
+            for (String key : eventsSection.getKeys(false)) {
+                ConfigurationSection eventSection = eventsSection.getConfigurationSection(key);
+                if (eventSection != null) {
+                    compiled.put(key, compileEvent(key, eventSection));
+                }
             }
-        }.runTaskTimer(plugin, interval * 20L, interval * 20L); // Convert seconds to ticks
+        }
+        definitions = Map.copyOf(compiled);
+        eventSamplers.clear();
+    }
+
+    /**
+     * Builds an event definition, creating one PotionEffect per configured effect.
+     */
+    private EventDefinition compileEvent(String key, ConfigurationSection eventSection) {
+        int duration = eventSection.getInt("duration", 300);
+        List<PotionEffect> potionEffects = new ArrayList<>();
+        ConfigurationSection effects = eventSection.getConfigurationSection("effects");
+        if (effects != null) {
+            for (String effectKey : effects.getKeys(false)) {
+                PotionEffectType effectType = PotionEffectType.getByName(effectKey.toUpperCase());
+                if (effectType == null) {
+                    plugin.getLogger().warning("Event '" + key + "': unknown potion effect '" + effectKey + "', ignoring it");
+                    continue;
+                }
+                int amplifier = effects.getInt(effectKey);
+                potionEffects.add(new PotionEffect(effectType, duration * 20, amplifier - 1));
+            }
+        }
+
+        return new EventDefinition(key,
+                eventSection.getString("name", key),
+                eventSection.getString("type", ""),
+                duration,
+                eventSection.getInt("weight", 1),
+                List.copyOf(potionEffects),
+                eventSection.getString("special_effect"));
+    }
+
+    /**
+     * Starts the automatic event trigger, or reschedules it if "event.interval" changed.
+     * Each run is moved by up to "event.interval_jitter" seconds either way.
+     */
+    private void scheduleEventTimer() {
+        long interval = configManager.getConfig().getInt("event.interval", 7200) * 20L; // Default: 2 hours
+        long jitter = configManager.getConfig().getInt("event.interval_jitter", 60) * 20L;
+        if (eventTimer == null) {
+            eventTimer = timerWheel.schedule("events", interval, interval, jitter, 5, this::triggerRandomEvents);
+            return;
+        }
+        eventTimer.setJitter(jitter);
+        if (eventTimer.getPeriodTicks() != interval) {
+            eventTimer.reschedule(interval);
+        }
     }
 
     /**
      * Triggers a random event for each civilization and a neutral event for all players.
+     * Civilisations are staggered by "event.stagger_ticks" so their effects don't all land in the same tick.
      */
     private void triggerRandomEvents() {
+        long delay = 0;
         for (String civ : civilisationManager.getCivilisations()) {
             String event = getRandomEventForType("GOOD", "BAD");
             if (event != null) {
-                triggerEvent(civ, event);
+                timerWheel.schedule("event:" + civ, delay, () -> triggerEvent(civ, event));
+                delay += staggerTicks;
             }
         }
 
         String neutralEvent = getRandomEventForType("NEUTRAL");
         if (neutralEvent != null) {
-            triggerEvent(null, neutralEvent);
+            timerWheel.schedule("event:*", delay, () -> triggerEvent(null, neutralEvent));
         }
     }
 
     /**
      * Triggers a specific event for a civilization or all players.
+     * Potion effects and the announcement are queued and applied over the following ticks.
      * @param civilisation The civilization affected (null for global events).
      * @param eventName The event to trigger.
      */
     public void triggerEvent(String civilisation, String eventName) {
-        ConfigurationSection eventSection = configManager.getConfig().getConfigurationSection("events." + eventName);
-        if (eventSection == null) return;
-
-        String displayName = eventSection.getString("name", eventName);
-        int duration = eventSection.getInt("duration", 300);
+        EventDefinition event = definitions.get(eventName);
+        if (event == null) return;
+        long start = System.nanoTime();
 
         // Get affected players
-        List<Player> players = Bukkit.getOnlinePlayers().stream()
-                .filter(p -> civilisation == null || civilisationManager.getPlayerCivilisation(p).equals(civilisation))
-                .collect(Collectors.toList());
+        List<Player> players = new ArrayList<>(civilisation == null
+                ? Bukkit.getOnlinePlayers()
+                : civilisationManager.getOnlineMembers(civilisation));
 
         // Apply potion effects
-        applyEffects(eventSection, players, duration);
+        applyEffects(event, players);
 
-        // Special handling for Sun's Wrath
-        if ("SUNS_WRATH".equals(eventSection.getString("special_effect", ""))) {
-            applySunsWrath(players);
+        // Special environmental effects such as Sun's Wrath
+        EnvironmentalEffect specialEffect = environmentalEffects.getEffect(event.specialEffect());
+        if (specialEffect != null) {
+            environmentalEffects.activate(specialEffect, civilisation, environmentalEffects.getCycles(event.duration()));
         }
 
         // Announce event
-        Bukkit.broadcastMessage(configManager.getMessage("event.start", displayName, (civilisation == null ? "everyone" : civilisation)));
+        String announcement = configManager.getMessage("event.start", event.name(), (civilisation == null ? "everyone" : civilisation));
+        effectQueue.submit(() -> Bukkit.broadcastMessage(announcement));
+        triggerTimer.recordSince(start);
     }
 
     /**
-     * Applies potion effects to players from the event configuration.
+     * Queues the event's potion effects for each player, reusing the event's PotionEffect instances.
      */
-    private void applyEffects(ConfigurationSection eventSection, List<Player> players, int duration) {
-        if (eventSection.contains("effects")) {
-            ConfigurationSection effects = eventSection.getConfigurationSection("effects");
-            for (String effectKey : effects.getKeys(false)) {
-                PotionEffectType effectType = PotionEffectType.getByName(effectKey.toUpperCase());
-                if (effectType != null) {
-                    int amplifier = effects.getInt(effectKey);
-                    for (Player player : players) {
-                        player.addPotionEffect(new PotionEffect(effectType, duration * 20, amplifier - 1));
-                    }
+    private void applyEffects(EventDefinition event, List<Player> players) {
+        if (event.effects().isEmpty()) return;
+        for (Player player : players) {
+            effectQueue.submit(() -> {
+                if (player.isOnline()) {
+                    player.addPotionEffects(event.effects());
                 }
-            }
+            });
         }
     }
 
     /**
-     * Applies Sun’s Wrath effect, dealing damage unless players are in shade or water.
+     * Gets a random event from the available event types, weighted by each event's "weight" (default 1).
+     * @param types The types of events to choose from (GOOD, BAD, NEUTRAL).
+     * @return A random event name or null if none are available.
      */
-    private void applySunsWrath(List<Player> players) {
-        new BukkitRunnable() {
-            int counter = 10; // 5 minutes (10 intervals of 30s)
-
-            @Override
-            public void run() {
-                if (counter-- <= 0) {
-                    cancel();
-                    return;
-                }
-
-                for (Player player : players) {
-                    if (player.getLocation().getBlock().getLightFromSky() > 0) {
-                        player.damage(1.0);
-                    }
-                }
-            }
-        }.runTaskTimer(plugin, 600, 600);
+    private String getRandomEventForType(String... types) {
+        return eventSamplers.computeIfAbsent(String.join(",", types), key -> buildEventSampler(types)).sample();
     }
 
     /**
-     * Gets a random event from the available event types.
-     * @param types The types of events to choose from (GOOD, BAD, NEUTRAL).
-     * @return A random event name or null if none are available.
+     * Builds a sampler over the compiled events matching any of the given types.
      */
-    private String getRandomEventForType(String... types) {
+    private WeightedSampler<String> buildEventSampler(String... types) {
         List<String> validEvents = new ArrayList<>();
-        ConfigurationSection eventsSection = configManager.getConfig().getConfigurationSection("events");
-        if (eventsSection == null) return null;
-
-        for (String key : eventsSection.getKeys(false)) {
-            String eventType = eventsSection.getString(key + ".type", "");
-            if (Arrays.asList(types).contains(eventType)) {
-                validEvents.add(key);
+        List<Integer> weights = new ArrayList<>();
+        for (EventDefinition event : definitions.values()) {
+            if (Arrays.asList(types).contains(event.type())) {
+                validEvents.add(event.key());
+                weights.add(event.weight());
             }
         }
 
-        return validEvents.isEmpty() ? null : validEvents.get(random.nextInt(validEvents.size()));
+        return WeightedSampler.of(validEvents, weights);
     }
 }
@@ -0,0 +1,19 @@
+package me.barnaby.civilisation.event;
+
+import org.bukkit.ChunkSnapshot;
+
+/**
+ * Sun’s Wrath: damages players unless they are in shade or water.
+ */
+public class SunsWrathEffect implements EnvironmentalEffect {
+
+    @Override
+    public String getId() {
+        return "SUNS_WRATH";
+    }
+
+    @Override
+    public double getDamage(ChunkSnapshot snapshot, int localX, int y, int localZ) {
+        return snapshot.getBlockSkyLight(localX, y, localZ) > 0 ? 1.0 : 0;
+    }
+}
@@ -3,16 +3,25 @@ package me.barnaby.civilisation.listeners;
 import me.barnaby.civilisation.Civilisation;
 import me.barnaby.civilisation.chat.ChatManager;
 import me.barnaby.civilisation.chat.ChatType;
+import me.barnaby.civilisation.chat.PlayerGrid;
 import me.barnaby.civilisation.civilisation.CivilisationManager;
 import me.barnaby.civilisation.config.ConfigManager;
+import me.barnaby.civilisation.config.PluginState;
+import me.barnaby.civilisation.metrics.LatencyHistogram;
+import me.barnaby.civilisation.session.SessionSlots;
+import me.barnaby.civilisation.util.StaffUtil;
 import net.luckperms.api.LuckPerms;
 import net.luckperms.api.model.user.User;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.AsyncPlayerChatEvent;
-import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.*;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Handles player-related events, including chat formatting and civilisation handling.
@@ -21,35 +30,81 @@ public class PlayerListeners implements Listener {
     private final ConfigManager configManager;
     private final LuckPerms luckPerms;
     private final CivilisationManager civilisationManager;
+    private final PlayerGrid playerGrid;
+    private final SessionSlots sessionSlots;
+    private final ChatManager chatManager;
+    private final LatencyHistogram chatTimer;
+    private final LatencyHistogram joinTimer;
+    // Messages sent per channel, indexed by ChatType ordinal
+    private final LongAdder[] channelCounters = new LongAdder[ChatType.values().length];
 
     public PlayerListeners(Civilisation civilisation, LuckPerms luckPerms) {
         this.configManager = civilisation.getConfigManager();
         this.luckPerms = luckPerms;
         this.civilisationManager = civilisation.getCivilisationManager();
+        this.playerGrid = civilisation.getPlayerGrid();
+        this.sessionSlots = civilisation.getSessionSlots();
+        this.chatManager = civilisation.getChatManager();
+        this.chatTimer = civilisation.getMetrics().timer("chat.handle");
+        this.joinTimer = civilisation.getMetrics().timer("player.join");
+        for (ChatType type : ChatType.values()) {
+            channelCounters[type.ordinal()] = civilisation.getMetrics().counter("chat.messages." + type.name().toLowerCase());
+        }
     }
 
     /**
      * Handles player chat events, applying chat formatting and filters based on chat type.
+     * Runs on async chat threads, so everything is read from a single state snapshot.
      */
     @EventHandler
     public void onPlayerChat(AsyncPlayerChatEvent event) {
+        long start = System.nanoTime();
+        try {
+            handleChat(event);
+        } finally {
+            chatTimer.recordSince(start);
+        }
+    }
+
+    private void handleChat(AsyncPlayerChatEvent event) {
         Player player = event.getPlayer();
         User user = luckPerms.getUserManager().getUser(player.getUniqueId());
         if (user == null) return; // Should not happen
 
-        ChatType chatType = ChatManager.getChatChannel(player);
+        PluginState state = configManager.getState();
+        ChatType chatType = chatManager.getChatChannel(player);
         String primaryGroup = user.getPrimaryGroup();
-        String chatFormat = configManager.getRankFormat(primaryGroup)
-                .replace("<player>", player.getName())
-                .replace("<message>", event.getMessage());
+        String chatFormat = state.getRankTemplate(primaryGroup)
+                .render(player.getName(), event.getMessage());
 
         event.setCancelled(true);
+        channelCounters[chatType.ordinal()].increment();
 
         switch (chatType) {
-            case GLOBAL -> sendChatMessage("chat.global", chatFormat);
-            case LOCAL -> sendLocalMessage(player, chatFormat);
-            case STAFF -> sendStaffMessage(player, chatFormat);
-            case CIVILISATION -> sendCivilisationMessage(player, chatFormat);
+            case GLOBAL -> Bukkit.broadcastMessage(state.getMessage("chat.global", chatFormat));
+            case LOCAL -> sendLocalMessage(state, player, chatFormat);
+            case STAFF -> sendStaffMessage(state, player, chatFormat);
+            case CIVILISATION -> sendCivilisationMessage(state, player, chatFormat);
+        }
+    }
+
+    /**
+     * Resolves the connecting player's civilisation off the main thread, so joining only has to read it.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            civilisationManager.prefetchMembership(event.getUniqueId(), event.getName());
+        }
+    }
+
+    /**
+     * Drops the prefetched membership of a player whose login was refused after pre-login.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            civilisationManager.discardPrefetch(event.getPlayer().getUniqueId());
         }
     }
 
@@ -59,7 +114,20 @@ public class PlayerListeners implements Listener {
      */
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
-        Player player = event.getPlayer();
+        long start = System.nanoTime();
+        try {
+            handleJoin(event.getPlayer());
+        } finally {
+            joinTimer.recordSince(start);
+        }
+    }
+
+    private void handleJoin(Player player) {
+        // The session slot comes first: everything below keeps its per-player state there
+        sessionSlots.allocate(player);
+        playerGrid.track(player);
+        civilisationManager.handleJoin(player);
+        StaffUtil.refresh(player);
         if (!player.hasPlayedBefore()) {
             civilisationManager.teleportToCivilisationSpawn(player);
         }
@@ -67,42 +135,69 @@ public class PlayerListeners implements Listener {
         civilisationManager.applyNametagPrefix(player);
     }
 
-    private void sendChatMessage(String messageKey, String message) {
-        Bukkit.broadcastMessage(configManager.getMessage(messageKey, message));
+    /**
+     * Handles player quit events, clearing any per-player state. The session slot is freed last.
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        civilisationManager.handleQuit(event.getPlayer());
+        playerGrid.untrack(event.getPlayer());
+        StaffUtil.remove(event.getPlayer());
+        sessionSlots.free(event.getPlayer());
+    }
+
+    /**
+     * Keeps the local chat grid in step with player movement.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        playerGrid.update(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        playerGrid.update(event.getPlayer(), event.getTo());
     }
 
-    private void sendLocalMessage(Player player, String message) {
-        int localChatDistance = configManager.getConfig().getInt("chat.local_distance", 100);
-        Bukkit.getOnlinePlayers().forEach(onlinePlayer -> {
-            if (onlinePlayer.getWorld().equals(player.getWorld()) &&
-                    onlinePlayer.getLocation().distance(player.getLocation()) <= localChatDistance) {
-                onlinePlayer.sendMessage(configManager.getMessage("chat.local", message));
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        playerGrid.update(event.getPlayer(), event.getRespawnLocation());
+    }
+
+    /**
+     * Players riding a boat, minecart or mount get no move events of their own, so they move with the vehicle.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onVehicleMove(VehicleMoveEvent event) {
+        for (Entity passenger : event.getVehicle().getPassengers()) {
+            if (passenger instanceof Player player) {
+                playerGrid.update(player, event.getTo());
             }
-        });
+        }
     }
 
-    private void sendStaffMessage(Player player, String message) {
-        if (!player.hasPermission("civilisation.staff")) {
-            player.sendMessage(configManager.getMessage("chat.staff_no_permission"));
+    private void sendLocalMessage(PluginState state, Player player, String message) {
+        String line = state.getMessage("chat.local", message);
+        playerGrid.getNearby(player, state.localChatDistance())
+                .forEach(onlinePlayer -> onlinePlayer.sendMessage(line));
+    }
+
+    private void sendStaffMessage(PluginState state, Player player, String message) {
+        if (!player.hasPermission(StaffUtil.STAFF_PERMISSION)) {
+            player.sendMessage(state.getMessage("chat.staff_no_permission"));
             return;
         }
-        Bukkit.getOnlinePlayers().forEach(onlinePlayer -> {
-            if (onlinePlayer.hasPermission("civilisation.staff")) {
-                onlinePlayer.sendMessage(configManager.getMessage("chat.staff", message));
-            }
-        });
+        String line = state.getMessage("chat.staff", message);
+        StaffUtil.getOnlineWith(StaffUtil.STAFF_PERMISSION).forEach(staff -> staff.sendMessage(line));
     }
 
-    private void sendCivilisationMessage(Player player, String message) {
+    private void sendCivilisationMessage(PluginState state, Player player, String message) {
         String civ = civilisationManager.getPlayerCivilisation(player);
         if (civ == null) {
-            player.sendMessage(configManager.getMessage("chat.civilisation_no_membership"));
+            player.sendMessage(state.getMessage("chat.civilisation_no_membership"));
             return;
         }
-        Bukkit.getOnlinePlayers().forEach(onlinePlayer -> {
-            if (civ.equals(civilisationManager.getPlayerCivilisation(onlinePlayer))) {
-                onlinePlayer.sendMessage(configManager.getMessage("chat.civilisation", message));
-            }
-        });
+        String line = state.getMessage("chat.civilisation", message);
+        civilisationManager.getOnlineMembers(civ).forEach(member -> member.sendMessage(line));
     }
 }
@@ -0,0 +1,27 @@
+package me.barnaby.civilisation.listeners;
+
+import me.barnaby.civilisation.Civilisation;
+import me.barnaby.civilisation.airdrop.LandingSiteIndex;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+
+/**
+ * Handles world-related events, keeping the airdrop landing index in step with the terrain.
+ */
+public class WorldListeners implements Listener {
+    private final LandingSiteIndex landingSites;
+
+    public WorldListeners(Civilisation civilisation) {
+        this.landingSites = civilisation.getAirdropManager().getLandingSites();
+    }
+
+    /**
+     * Samples newly loaded chunks inside the airdrop region that haven't been indexed yet.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        landingSites.sample(event.getChunk());
+    }
+}
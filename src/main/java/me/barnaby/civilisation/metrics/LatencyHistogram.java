@@ -0,0 +1,92 @@
+package me.barnaby.civilisation.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with fixed power-of-two buckets.
+ * Bucket {@code i} holds durations in {@code [2^(i-1), 2^i)} nanoseconds, so recording is
+ * a leading-zero count and one {@link LongAdder} increment, with no allocation.
+ * Percentiles are reported as the upper bound of the bucket they fall in, which is within a factor of two.
+ */
+public final class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final String name;
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    LatencyHistogram(String name) {
+        this.name = name;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one duration. Safe to call from any thread.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos))].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, taken from {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Takes a snapshot of the histogram. Concurrent recordings may be partly included.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        return new Snapshot(name, total, totalNanos.sum(), maxNanos.get(),
+                percentile(counts, total, 0.50), percentile(counts, total, 0.99));
+    }
+
+    /**
+     * Clears every recorded duration.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) bucket.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    private static long percentile(long[] counts, long total, double quantile) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : 1L << i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * A point-in-time view of a histogram. Times are in nanoseconds.
+     */
+    public record Snapshot(String name, long count, long totalNanos, long maxNanos, long p50Nanos, long p99Nanos) {
+        public long meanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package me.barnaby.civilisation.metrics;
+
+import me.barnaby.civilisation.scheduler.ScheduledTask;
+import me.barnaby.civilisation.scheduler.TimerWheel;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodically appends a snapshot of every metric to {@code metrics.csv} in the data folder.
+ * Snapshots are taken on the main thread and written off it. Disabled when the interval is 0.
+ */
+public class MetricsCsvWriter {
+    private static final String HEADER = "time,metric,count,p50_ns,p99_ns,max_ns,mean_ns\n";
+
+    private final Plugin plugin;
+    private final MetricsRegistry metrics;
+    private final TimerWheel timerWheel;
+    private ScheduledTask task;
+
+    public MetricsCsvWriter(Plugin plugin, MetricsRegistry metrics, TimerWheel timerWheel) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.timerWheel = timerWheel;
+    }
+
+    /**
+     * Starts, reschedules or stops the dump.
+     *
+     * @param intervalSeconds seconds between dumps, or 0 to stop dumping
+     */
+    public void setInterval(int intervalSeconds) {
+        long interval = Math.max(0, intervalSeconds) * 20L;
+        if (interval == 0) {
+            if (task != null) {
+                task.cancel();
+                task = null;
+            }
+        } else if (task == null) {
+            task = timerWheel.scheduleRepeating("metrics-csv", interval, interval, this::dump);
+        } else if (task.getPeriodTicks() != interval) {
+            task.reschedule(interval);
+        }
+    }
+
+    private void dump() {
+        String time = Instant.now().toString();
+        Map<String, Long> counters = metrics.getCounters();
+        List<LatencyHistogram.Snapshot> timers = metrics.getTimers();
+
+        StringBuilder rows = new StringBuilder();
+        counters.forEach((name, value) -> rows.append(time).append(',').append(name).append(',').append(value)
+                .append(",,,,\n"));
+        for (LatencyHistogram.Snapshot timer : timers) {
+            rows.append(time).append(',').append(timer.name()).append(',').append(timer.count())
+                    .append(',').append(timer.p50Nanos()).append(',').append(timer.p99Nanos())
+                    .append(',').append(timer.maxNanos()).append(',').append(timer.meanNanos()).append('\n');
+        }
+
+        Path file = plugin.getDataFolder().toPath().resolve("metrics.csv");
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                Files.createDirectories(file.getParent());
+                if (!Files.exists(file)) {
+                    Files.writeString(file, HEADER, StandardCharsets.UTF_8);
+                }
+                Files.writeString(file, rows, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not write metrics.csv!");
+                e.printStackTrace();
+            }
+        });
+    }
+}
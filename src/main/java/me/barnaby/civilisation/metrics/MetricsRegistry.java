@@ -0,0 +1,71 @@
+package me.barnaby.civilisation.metrics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters and latency histograms for the plugin's hot paths.
+ * <p>
+ * Look metrics up once and keep the reference; recording is then a {@link LongAdder} increment
+ * (plus two {@link System#nanoTime()} calls for timings), which stays cheap under contention from
+ * async chat threads. Names are dotted, e.g. {@code chat.handle}.
+ * </p>
+ */
+public class MetricsRegistry {
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    /**
+     * Gets or creates a counter.
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Gets or creates a latency histogram.
+     */
+    public LatencyHistogram timer(String name) {
+        return timers.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Gets the current value of every counter, sorted by name.
+     */
+    public SortedMap<String, Long> getCounters() {
+        SortedMap<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    /**
+     * Gets a snapshot of every histogram, sorted by name.
+     */
+    public List<LatencyHistogram.Snapshot> getTimers() {
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+        for (LatencyHistogram timer : timers.values()) {
+            snapshots.add(timer.snapshot());
+        }
+        snapshots.sort(Comparator.comparing(LatencyHistogram.Snapshot::name));
+        return snapshots;
+    }
+
+    /**
+     * Clears every counter and histogram. Existing references stay valid.
+     */
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        timers.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Formats a duration in nanoseconds for display, e.g. 850ns, 12.4µs or 3.20ms.
+     */
+    public static String formatNanos(long nanos) {
+        if (nanos == Long.MAX_VALUE) return "inf";
+        if (nanos < 1_000) return nanos + "ns";
+        if (nanos < 1_000_000) return String.format("%.1fµs", nanos / 1_000.0);
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+}
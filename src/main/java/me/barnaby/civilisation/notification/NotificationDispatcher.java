@@ -0,0 +1,198 @@
+package me.barnaby.civilisation.notification;
+
+import me.barnaby.civilisation.config.ConfigManager;
+import me.barnaby.civilisation.metrics.MetricsRegistry;
+import me.barnaby.civilisation.scheduler.ScheduledTask;
+import me.barnaby.civilisation.scheduler.TimerWheel;
+import me.barnaby.civilisation.util.ChatUtils;
+import me.barnaby.civilisation.util.StaffUtil;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers {@link StaffAlert}s to online staff in digests.
+ * <p>
+ * Alerts submitted within a short window are collected and sent together when it closes: a lone
+ * alert looks as it always has, several are sent as one digest. Alerts on the same topic are merged
+ * into one line with a count. Each sender may raise only a limited number of alerts per window, and
+ * can't repeat a topic for a while. Every line and teleport link is built once per digest and the
+ * same components are sent to every staff member. All methods must be called on the main thread.
+ * </p>
+ */
+public class NotificationDispatcher {
+    private static final int MAX_DIGEST_LINES = 10;
+
+    /**
+     * Why an alert was accepted or turned away.
+     */
+    public enum Result {
+        ACCEPTED,
+        RATE_LIMITED,
+        DUPLICATE
+    }
+
+    /**
+     * An alert waiting for the digest, with the number of senders that raised its topic.
+     */
+    private static final class Pending {
+        private final StaffAlert alert;
+        private int count = 1;
+
+        private Pending(StaffAlert alert) {
+            this.alert = alert;
+        }
+    }
+
+    /**
+     * Alerts a sender has raised in their current rate limit window.
+     */
+    private static final class SenderWindow {
+        private long start;
+        private int count;
+    }
+
+    private final TimerWheel timerWheel;
+    private final ConfigManager configManager;
+    // Topics waiting for the digest, in the order they were first raised
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private final Map<UUID, SenderWindow> senderWindows = new HashMap<>();
+    // When each sender last raised each topic, keyed by sender and topic
+    private final Map<String, Long> lastRaised = new HashMap<>();
+    private final LongAdder alertCounter;
+    private final LongAdder mergedCounter;
+    private final LongAdder rateLimitedCounter;
+    private final LongAdder duplicateCounter;
+    private final LongAdder digestCounter;
+    private ScheduledTask flushTask;
+    private long windowTicks;
+    private int senderLimit;
+    private long senderWindowMillis;
+    private long duplicateWindowMillis;
+
+    public NotificationDispatcher(TimerWheel timerWheel, ConfigManager configManager, MetricsRegistry metrics) {
+        this.timerWheel = timerWheel;
+        this.configManager = configManager;
+        this.alertCounter = metrics.counter("staff.alerts");
+        this.mergedCounter = metrics.counter("staff.alerts_merged");
+        this.rateLimitedCounter = metrics.counter("staff.alerts_rate_limited");
+        this.duplicateCounter = metrics.counter("staff.alerts_duplicate");
+        this.digestCounter = metrics.counter("staff.digests");
+        reload();
+    }
+
+    /**
+     * Re-reads the window and limits from the config.
+     */
+    public void reload() {
+        FileConfiguration config = configManager.getConfig();
+        windowTicks = Math.max(1, config.getLong("notifications.digest_window_ticks", 40));
+        senderLimit = Math.max(1, config.getInt("notifications.sender_limit", 3));
+        senderWindowMillis = config.getLong("notifications.sender_window_seconds", 60) * 1000L;
+        duplicateWindowMillis = config.getLong("notifications.duplicate_window_seconds", 120) * 1000L;
+    }
+
+    /**
+     * Queues an alert for the next digest, unless its sender is over their limit or already raised its topic.
+     */
+    public Result submit(StaffAlert alert) {
+        long now = System.currentTimeMillis();
+        String senderTopic = alert.sender() + ":" + alert.topic();
+        Long raised = lastRaised.get(senderTopic);
+        if (raised != null && now - raised < duplicateWindowMillis) {
+            duplicateCounter.increment();
+            return Result.DUPLICATE;
+        }
+
+        SenderWindow window = senderWindows.computeIfAbsent(alert.sender(), uuid -> new SenderWindow());
+        if (now - window.start >= senderWindowMillis) {
+            window.start = now;
+            window.count = 0;
+        }
+        if (window.count >= senderLimit) {
+            rateLimitedCounter.increment();
+            return Result.RATE_LIMITED;
+        }
+        window.count++;
+        lastRaised.put(senderTopic, now);
+        alertCounter.increment();
+
+        Pending existing = pending.get(alert.topic());
+        if (existing != null) {
+            existing.count++;
+            mergedCounter.increment();
+        } else {
+            pending.put(alert.topic(), new Pending(alert));
+        }
+        if (flushTask == null) {
+            flushTask = timerWheel.schedule("staff-digest", windowTicks, this::flush);
+        }
+        return Result.ACCEPTED;
+    }
+
+    /**
+     * Sends everything collected in the window that just closed.
+     */
+    private void flush() {
+        flushTask = null;
+        List<Pending> alerts = new ArrayList<>(pending.values());
+        pending.clear();
+        forgetExpired();
+        if (alerts.isEmpty()) return;
+
+        List<BaseComponent[]> lines = new ArrayList<>();
+        if (alerts.size() == 1) {
+            // A lone alert keeps its usual layout: the alert, then the teleport link on its own line
+            Pending only = alerts.get(0);
+            lines.add(TextComponent.fromLegacyText(withCount(only)));
+            if (only.alert.teleportTarget() != null) {
+                lines.add(teleportLink(only.alert));
+            }
+        } else {
+            int total = alerts.stream().mapToInt(alert -> alert.count).sum();
+            lines.add(TextComponent.fromLegacyText(configManager.getMessage("notifications.digest_header", total, alerts.size())));
+            for (Pending alert : alerts.subList(0, Math.min(alerts.size(), MAX_DIGEST_LINES))) {
+                List<BaseComponent> line = new ArrayList<>(Arrays.asList(TextComponent.fromLegacyText(withCount(alert))));
+                if (alert.alert.teleportTarget() != null) {
+                    line.add(new TextComponent(" "));
+                    line.addAll(Arrays.asList(teleportLink(alert.alert)));
+                }
+                lines.add(line.toArray(new BaseComponent[0]));
+            }
+            if (alerts.size() > MAX_DIGEST_LINES) {
+                lines.add(TextComponent.fromLegacyText(configManager.getMessage("notifications.digest_more", alerts.size() - MAX_DIGEST_LINES)));
+            }
+            digestCounter.increment();
+        }
+
+        for (Player staff : StaffUtil.getOnlineStaff()) {
+            staff.sendMessage("");
+            for (BaseComponent[] line : lines) {
+                staff.spigot().sendMessage(line);
+            }
+            staff.sendMessage("");
+        }
+    }
+
+    private String withCount(Pending alert) {
+        return alert.count == 1 ? alert.alert.message()
+                : alert.alert.message() + " " + configManager.getMessage("notifications.repeated", alert.count);
+    }
+
+    private static BaseComponent[] teleportLink(StaffAlert alert) {
+        return ChatUtils.commandLink(alert.clickLabel(), "/teleport " + alert.teleportTarget(), alert.hoverLabel());
+    }
+
+    /**
+     * Drops rate limit windows and raised topics that no longer matter.
+     */
+    private void forgetExpired() {
+        long now = System.currentTimeMillis();
+        senderWindows.values().removeIf(window -> now - window.start >= senderWindowMillis);
+        lastRaised.values().removeIf(raised -> now - raised >= duplicateWindowMillis);
+    }
+}
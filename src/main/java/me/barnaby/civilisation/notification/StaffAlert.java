@@ -0,0 +1,33 @@
+package me.barnaby.civilisation.notification;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * An alert for online staff, such as a report or a notify.
+ *
+ * @param sender         the player who raised it.
+ * @param topic          what the alert is about, e.g. "report:steve:griefing"; alerts with the same topic
+ *                       in one digest window are merged, and a sender can't repeat a topic for a while.
+ * @param message        the formatted alert line.
+ * @param teleportTarget the player staff can click to teleport to, or null for none.
+ * @param clickLabel     the pre-built label of the teleport link.
+ * @param hoverLabel     the pre-built tooltip of the teleport link.
+ */
+public record StaffAlert(UUID sender, String topic, String message, String teleportTarget,
+                         BaseComponent[] clickLabel, BaseComponent[] hoverLabel) {
+
+    /**
+     * Builds a topic from its parts, ignoring case and surrounding whitespace.
+     */
+    public static String topic(String... parts) {
+        StringBuilder topic = new StringBuilder();
+        for (String part : parts) {
+            if (!topic.isEmpty()) topic.append(':');
+            topic.append(part == null ? "" : part.trim().toLowerCase(Locale.ROOT));
+        }
+        return topic.toString();
+    }
+}
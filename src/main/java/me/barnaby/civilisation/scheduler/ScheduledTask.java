@@ -0,0 +1,132 @@
+package me.barnaby.civilisation.scheduler;
+
+import me.barnaby.civilisation.metrics.LatencyHistogram;
+
+/**
+ * A task scheduled on the {@link TimerWheel}.
+ * Handles can be used to cancel or reschedule the task at runtime, and expose run statistics.
+ * All methods must be called on the main thread.
+ */
+public final class ScheduledTask {
+    private final TimerWheel wheel;
+    private final String name;
+    private final Runnable action;
+    private final LatencyHistogram timer;
+    private long periodTicks;
+    private long jitterTicks;
+    private long budgetNanos;
+
+    // Wheel bookkeeping
+    long dueTick;
+    boolean cancelled;
+
+    // Statistics
+    private long runs;
+    private long overruns;
+    private long lastRunNanos;
+    private long maxRunNanos;
+
+    ScheduledTask(TimerWheel wheel, String name, Runnable action, LatencyHistogram timer,
+                  long periodTicks, long jitterTicks, long budgetNanos) {
+        this.wheel = wheel;
+        this.name = name;
+        this.action = action;
+        this.timer = timer;
+        this.periodTicks = periodTicks;
+        this.jitterTicks = jitterTicks;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Runs the action, timing it against the task's budget.
+     *
+     * @return whether the run went over budget.
+     */
+    boolean run() {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            lastRunNanos = System.nanoTime() - start;
+            timer.record(lastRunNanos);
+            maxRunNanos = Math.max(maxRunNanos, lastRunNanos);
+            runs++;
+        }
+        if (budgetNanos > 0 && lastRunNanos > budgetNanos) {
+            overruns++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stops the task. It will not run again.
+     */
+    public void cancel() {
+        wheel.cancel(this);
+    }
+
+    /**
+     * Changes the period of a repeating task (or makes a one-shot task repeat).
+     * The next run is moved to one new period from now.
+     */
+    public void reschedule(long periodTicks) {
+        this.periodTicks = periodTicks;
+        wheel.reschedule(this, periodTicks);
+    }
+
+    public void setJitter(long jitterTicks) {
+        this.jitterTicks = Math.max(0, jitterTicks);
+    }
+
+    public void setBudget(long budgetMillis) {
+        this.budgetNanos = budgetMillis * 1_000_000L;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isRepeating() {
+        return periodTicks > 0;
+    }
+
+    public long getPeriodTicks() {
+        return periodTicks;
+    }
+
+    public long getJitterTicks() {
+        return jitterTicks;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * Gets the number of ticks until the task next runs.
+     */
+    public long getTicksUntilRun() {
+        return Math.max(0, dueTick - wheel.getCurrentTick());
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+
+    public long getOverruns() {
+        return overruns;
+    }
+
+    public long getLastRunNanos() {
+        return lastRunNanos;
+    }
+
+    public long getMaxRunNanos() {
+        return maxRunNanos;
+    }
+}
@@ -0,0 +1,187 @@
+package me.barnaby.civilisation.scheduler;
+
+import me.barnaby.civilisation.metrics.MetricsRegistry;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The plugin's single scheduler: a hashed timing wheel driven by one repeating Bukkit task.
+ * <p>
+ * Tasks are hashed into one of {@value #WHEEL_SIZE} buckets by the tick they are due on; each tick
+ * only the current bucket is visited, so the cost per tick is proportional to the tasks in that bucket
+ * rather than to everything scheduled. Tasks due more than one rotation ahead stay in their bucket
+ * until their tick comes round. Repeating tasks can carry jitter, so timers with the same interval
+ * don't line up on the same tick, and a time budget, with overruns counted and logged.
+ * Run times are also recorded in the metrics registry as {@code task.<name>}, where anything after
+ * a colon in the name is dropped so related tasks share one histogram.
+ * </p>
+ * All methods must be called on the main thread.
+ */
+public class TimerWheel {
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private final Plugin plugin;
+    private final MetricsRegistry metrics;
+    @SuppressWarnings("unchecked")
+    private final List<ScheduledTask>[] buckets = new List[WHEEL_SIZE];
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+    private long currentTick;
+    private BukkitTask driver;
+
+    public TimerWheel(Plugin plugin, MetricsRegistry metrics) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Starts driving the wheel, one step per server tick.
+     */
+    public void start() {
+        if (driver != null) return;
+        driver = new BukkitRunnable() {
+            @Override
+            public void run() {
+                advance();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * Stops the wheel and drops every scheduled task.
+     */
+    public void stop() {
+        if (driver != null) {
+            driver.cancel();
+            driver = null;
+        }
+        for (ScheduledTask task : tasks) {
+            task.cancelled = true;
+        }
+        tasks.clear();
+        for (List<ScheduledTask> bucket : buckets) {
+            bucket.clear();
+        }
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     */
+    public ScheduledTask schedule(String name, long delayTicks, Runnable action) {
+        return schedule(name, delayTicks, 0L, 0L, 0L, action);
+    }
+
+    /**
+     * Schedules a task to run repeatedly.
+     */
+    public ScheduledTask scheduleRepeating(String name, long delayTicks, long periodTicks, Runnable action) {
+        return schedule(name, delayTicks, periodTicks, 0L, 0L, action);
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param name         a name to show when listing pending tasks
+     * @param delayTicks   ticks until the first run
+     * @param periodTicks  ticks between runs, or 0 to run once
+     * @param jitterTicks  up to this many ticks are randomly added to or taken from each delay
+     * @param budgetMillis the time one run should take at most, or 0 for no budget
+     * @param action       the work to run
+     */
+    public ScheduledTask schedule(String name, long delayTicks, long periodTicks, long jitterTicks,
+                                  long budgetMillis, Runnable action) {
+        int colon = name.indexOf(':');
+        String metricName = "task." + (colon < 0 ? name : name.substring(0, colon));
+        ScheduledTask task = new ScheduledTask(this, name, action, metrics.timer(metricName), Math.max(0, periodTicks),
+                Math.max(0, jitterTicks), budgetMillis * 1_000_000L);
+        tasks.add(task);
+        insert(task, delayTicks);
+        return task;
+    }
+
+    /**
+     * Gets every pending task, soonest first.
+     */
+    public List<ScheduledTask> getPendingTasks() {
+        List<ScheduledTask> pending = new ArrayList<>(tasks);
+        pending.sort(Comparator.comparingLong(task -> task.dueTick));
+        return pending;
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    void cancel(ScheduledTask task) {
+        if (task.cancelled) return;
+        task.cancelled = true;
+        tasks.remove(task);
+        buckets[(int) (task.dueTick & MASK)].remove(task);
+    }
+
+    void reschedule(ScheduledTask task, long delayTicks) {
+        if (task.cancelled) return;
+        buckets[(int) (task.dueTick & MASK)].remove(task);
+        insert(task, delayTicks);
+    }
+
+    private void insert(ScheduledTask task, long delayTicks) {
+        long delay = Math.max(1L, delayTicks + jitter(task.getJitterTicks()));
+        task.dueTick = currentTick + delay;
+        buckets[(int) (task.dueTick & MASK)].add(task);
+    }
+
+    private static long jitter(long jitterTicks) {
+        return jitterTicks <= 0 ? 0 : ThreadLocalRandom.current().nextLong(-jitterTicks, jitterTicks + 1);
+    }
+
+    /**
+     * Moves the wheel on by one tick and runs whatever is due.
+     */
+    private void advance() {
+        currentTick++;
+        List<ScheduledTask> bucket = buckets[(int) (currentTick & MASK)];
+        if (bucket.isEmpty()) return;
+
+        // Take the due tasks out first, so tasks can schedule or cancel others while running
+        List<ScheduledTask> due = new ArrayList<>();
+        bucket.removeIf(task -> {
+            if (task.dueTick > currentTick) return false;
+            due.add(task);
+            return true;
+        });
+
+        for (ScheduledTask task : due) {
+            // A task run earlier this tick may have cancelled or rescheduled this one
+            if (task.cancelled || task.dueTick > currentTick) continue;
+            try {
+                if (task.run()) {
+                    plugin.getLogger().warning("Task '" + task.getName() + "' took "
+                            + task.getLastRunNanos() / 1_000_000.0 + "ms, over its "
+                            + task.getBudgetNanos() / 1_000_000.0 + "ms budget (" + task.getOverruns() + " overruns).");
+                }
+            } catch (RuntimeException e) {
+                plugin.getLogger().severe("Task '" + task.getName() + "' failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+
+            // The task may have cancelled or rescheduled itself while running
+            if (task.cancelled || task.dueTick > currentTick) continue;
+            if (task.isRepeating()) {
+                insert(task, task.getPeriodTicks());
+            } else {
+                task.cancelled = true;
+                tasks.remove(task);
+            }
+        }
+    }
+}
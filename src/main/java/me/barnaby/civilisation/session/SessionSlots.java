@@ -0,0 +1,209 @@
+package me.barnaby.civilisation.session;
+
+import org.bukkit.entity.Player;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every online player a small, reused int slot for the length of their session,
+ * and holds per-player state in primitive arrays indexed by that slot.
+ * <p>
+ * Slots are allocated on join and freed on quit, always taking the lowest free slot, so the arrays
+ * stay dense and nothing outlives the session. Reads are array reads with no boxing and no locking,
+ * and are safe from async chat threads. The columns live in one holder object that is swapped
+ * whole when they grow; growth, freeing and every write take a lock, so a write made from another
+ * thread while the columns grow can't land in the arrays being replaced. Writes are keyed by UUID
+ * and resolve the slot under that lock, so they can't land on a player who took over a freed slot.
+ * Allocation and freeing must happen on the main thread.
+ * </p>
+ */
+public class SessionSlots {
+    public static final int NO_SLOT = -1;
+    public static final int NO_CIVILISATION = -1;
+
+    // Flag bits
+    /** The player's LuckPerms groups have been checked and matched no civilisation. */
+    public static final int FLAG_RESOLVED = 1;
+
+    private static final int MIN_CAPACITY = 64;
+    private static final VarHandle INT_ARRAY = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /**
+     * The per-slot columns, replaced together when they grow.
+     */
+    private static final class Columns {
+        private final Player[] players;
+        private final byte[] chatChannels;
+        private final int[] civilisations;
+        private final int[] flags;
+
+        private Columns(int capacity) {
+            this(new Player[capacity], new byte[capacity], new int[capacity], new int[capacity]);
+            Arrays.fill(civilisations, NO_CIVILISATION);
+        }
+
+        private Columns(Player[] players, byte[] chatChannels, int[] civilisations, int[] flags) {
+            this.players = players;
+            this.chatChannels = chatChannels;
+            this.civilisations = civilisations;
+            this.flags = flags;
+        }
+
+        /**
+         * Copies the columns into larger ones, at least doubling, so growth is rare once the server has filled up.
+         */
+        private Columns grow(int minCapacity) {
+            int capacity = Math.max(minCapacity, players.length * 2);
+            int[] grownCivilisations = Arrays.copyOf(civilisations, capacity);
+            Arrays.fill(grownCivilisations, civilisations.length, capacity, NO_CIVILISATION);
+            return new Columns(Arrays.copyOf(players, capacity), Arrays.copyOf(chatChannels, capacity),
+                    grownCivilisations, Arrays.copyOf(flags, capacity));
+        }
+    }
+
+    private final Map<UUID, Integer> slotsByUuid = new ConcurrentHashMap<>();
+    private final BitSet used = new BitSet();
+    // Guards growth and writes, so no write is made to columns that are being replaced
+    private final Object lock = new Object();
+
+    private volatile Columns columns;
+
+    public SessionSlots(int expectedPlayers) {
+        columns = new Columns(Math.max(MIN_CAPACITY, expectedPlayers));
+    }
+
+    /**
+     * Gives a joining player a slot, or returns the one they already hold.
+     */
+    public int allocate(Player player) {
+        Integer existing = slotsByUuid.get(player.getUniqueId());
+        if (existing != null) return existing;
+
+        synchronized (lock) {
+            int slot = used.nextClearBit(0);
+            if (slot >= columns.players.length) {
+                columns = columns.grow(slot + 1);
+            }
+            used.set(slot);
+            columns.players[slot] = player;
+            slotsByUuid.put(player.getUniqueId(), slot);
+            return slot;
+        }
+    }
+
+    /**
+     * Frees a leaving player's slot and resets its state for the next player.
+     */
+    public void free(Player player) {
+        synchronized (lock) {
+            Integer slot = slotsByUuid.remove(player.getUniqueId());
+            if (slot == null) return;
+
+            Columns current = columns;
+            current.players[slot] = null;
+            current.chatChannels[slot] = 0;
+            current.civilisations[slot] = NO_CIVILISATION;
+            INT_ARRAY.setVolatile(current.flags, slot, 0);
+            used.clear(slot);
+        }
+    }
+
+    /**
+     * Gets a player's slot, or {@link #NO_SLOT} if they aren't online.
+     */
+    public int getSlot(UUID uuid) {
+        Integer slot = slotsByUuid.get(uuid);
+        return slot == null ? NO_SLOT : slot;
+    }
+
+    public int getSlot(Player player) {
+        return getSlot(player.getUniqueId());
+    }
+
+    public Player getPlayer(int slot) {
+        return columns.players[slot];
+    }
+
+    /**
+     * Gets the number of players holding a slot.
+     */
+    public int size() {
+        return slotsByUuid.size();
+    }
+
+    public byte getChatChannel(int slot) {
+        return columns.chatChannels[slot];
+    }
+
+    /**
+     * Sets an online player's chat channel. Like every write, it looks the player up under the lock,
+     * so a slot freed and reused in the meantime is never touched.
+     */
+    public void setChatChannel(UUID uuid, byte channel) {
+        synchronized (lock) {
+            Integer slot = slotsByUuid.get(uuid);
+            if (slot != null) {
+                columns.chatChannels[slot] = channel;
+            }
+        }
+    }
+
+    /**
+     * Gets the index of the civilisation a player is listed under while online, or {@link #NO_CIVILISATION}.
+     */
+    public int getCivilisation(int slot) {
+        return columns.civilisations[slot];
+    }
+
+    public void setCivilisation(UUID uuid, int civilisation) {
+        synchronized (lock) {
+            Integer slot = slotsByUuid.get(uuid);
+            if (slot != null) {
+                columns.civilisations[slot] = civilisation;
+            }
+        }
+    }
+
+    public boolean hasFlag(int slot, int flag) {
+        return ((int) INT_ARRAY.getVolatile(columns.flags, slot) & flag) != 0;
+    }
+
+    /**
+     * Sets a flag for an online player. Flags are written from several threads, so they are updated atomically.
+     */
+    public void setFlag(UUID uuid, int flag) {
+        synchronized (lock) {
+            Integer slot = slotsByUuid.get(uuid);
+            if (slot != null) {
+                INT_ARRAY.getAndBitwiseOr(columns.flags, slot.intValue(), flag);
+            }
+        }
+    }
+
+    public void clearFlag(UUID uuid, int flag) {
+        synchronized (lock) {
+            Integer slot = slotsByUuid.get(uuid);
+            if (slot != null) {
+                INT_ARRAY.getAndBitwiseAnd(columns.flags, slot.intValue(), ~flag);
+            }
+        }
+    }
+
+    /**
+     * Clears a flag for every online player.
+     */
+    public void clearFlagAll(int flag) {
+        synchronized (lock) {
+            int[] current = columns.flags;
+            for (int slot = 0; slot < current.length; slot++) {
+                INT_ARRAY.getAndBitwiseAnd(current, slot, ~flag);
+            }
+        }
+    }
+}
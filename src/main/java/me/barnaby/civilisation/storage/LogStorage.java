@@ -0,0 +1,87 @@
+package me.barnaby.civilisation.storage;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Storage backed by the append-only {@link MembershipStore}.
+ * Queries scan the in-memory membership maps, and reports are only kept in memory for the
+ * current session (the most recent {@value #MAX_REPORTS}); use the SQLite backend to keep them.
+ */
+public class LogStorage implements Storage {
+    private static final int MAX_REPORTS = 1000;
+
+    private final MembershipStore store;
+    private final Deque<Report> reports = new ConcurrentLinkedDeque<>();
+
+    public LogStorage(MembershipStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public CompletableFuture<StoredMemberships> loadMemberships() {
+        return CompletableFuture.completedFuture(
+                new StoredMemberships(Map.copyOf(store.getMembers()), Map.copyOf(store.getLegacyMembers())));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveMember(UUID uuid, String name, String civilisation) {
+        store.appendJoin(uuid, name, civilisation);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeMember(UUID uuid) {
+        store.appendLeave(uuid);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveLegacyMembers(Map<String, String> legacyMembers) {
+        legacyMembers.forEach(store::appendLegacy);
+        return CompletableFuture.runAsync(() -> {
+            if (!store.flush()) {
+                throw new CompletionException(new IOException("The membership log could not be flushed"));
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, String>> getMembers(String civilisation) {
+        Map<UUID, String> members = new LinkedHashMap<>();
+        store.getMembers().entrySet().stream()
+                .filter(entry -> entry.getValue().civilisation().equals(civilisation))
+                .sorted(Comparator.comparing(entry -> entry.getValue().name(), String.CASE_INSENSITIVE_ORDER))
+                .forEach(entry -> members.put(entry.getKey(), entry.getValue().name()));
+        return CompletableFuture.completedFuture(members);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveReport(Report report) {
+        reports.addFirst(report);
+        while (reports.size() > MAX_REPORTS) {
+            reports.pollLast();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<List<Report>> getReportsAbout(String targetName, int limit) {
+        List<Report> matching = new ArrayList<>();
+        for (Report report : reports) {
+            if (matching.size() >= limit) break;
+            if (targetName.equalsIgnoreCase(report.targetName())) {
+                matching.add(report);
+            }
+        }
+        return CompletableFuture.completedFuture(matching);
+    }
+
+    @Override
+    public void close() {
+        store.shutdown();
+    }
+}
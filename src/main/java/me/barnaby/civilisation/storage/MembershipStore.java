@@ -0,0 +1,358 @@
+package me.barnaby.civilisation.storage;
+
+import me.barnaby.civilisation.metrics.LatencyHistogram;
+import me.barnaby.civilisation.metrics.MetricsRegistry;
+import me.barnaby.civilisation.storage.StoredMemberships.Member;
+import org.bukkit.plugin.Plugin;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persists civilisation membership in memberships.log, an append-only binary log. Used by {@link LogStorage}.
+ * <p>
+ * Every change is one small record appended by a background writer thread: a join (UUID, name and
+ * civilisation), a leave (UUID), or a legacy entry (a name with no known UUID, migrated from the old
+ * config player lists). The log is replayed into memory at startup, later records overriding earlier
+ * ones, and rewritten with only the live entries once it has grown to more than twice their number.
+ * </p>
+ */
+public class MembershipStore {
+    private static final String DEFAULT_FILE_NAME = "memberships.log";
+    private static final int MAGIC = 0x4349564D; // "CIVM"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES + 1;
+    private static final byte JOIN = 1;
+    private static final byte LEAVE = 2;
+    private static final byte LEGACY = 3;
+    private static final int COMPACT_MIN_RECORDS = 1024;
+    private static final long FLUSH_TIMEOUT_SECONDS = 10L;
+
+    private final Plugin plugin;
+    private final String fileName;
+    private final Path path;
+    private final Map<UUID, Member> members = new ConcurrentHashMap<>();
+    // Names from the old config player lists whose UUID hasn't been seen yet
+    private final Map<String, String> legacyMembers = new ConcurrentHashMap<>();
+    private final LongAdder appends;
+    private final LatencyHistogram appendTimer;
+    private final LatencyHistogram compactTimer;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Civilisation-MembershipWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Only touched on the writer thread once loaded
+    private FileChannel channel;
+    private int records;
+
+    public MembershipStore(Plugin plugin, MetricsRegistry metrics) {
+        this(plugin, metrics, DEFAULT_FILE_NAME);
+    }
+
+    /**
+     * @param fileName the log's file name inside the plugin's data folder.
+     */
+    public MembershipStore(Plugin plugin, MetricsRegistry metrics, String fileName) {
+        this.plugin = plugin;
+        this.fileName = fileName;
+        this.path = plugin.getDataFolder().toPath().resolve(fileName);
+        this.appends = metrics.counter("membership.appends");
+        this.appendTimer = metrics.timer("membership.append");
+        this.compactTimer = metrics.timer("membership.compact");
+    }
+
+    /**
+     * Replays the log into memory and opens it for appending.
+     * A record cut short by a crash is discarded along with anything after it.
+     */
+    public void load() {
+        try {
+            Files.createDirectories(path.getParent());
+            long validLength = Files.exists(path) ? replay(Files.readAllBytes(path)) : 0;
+            if (validLength < 0) {
+                Path aside = path.resolveSibling(fileName + ".invalid-" + System.currentTimeMillis());
+                plugin.getLogger().severe(fileName + " is not a membership log this version can read, moving it to " + aside.getFileName() + ".");
+                Files.move(path, aside);
+                validLength = 0;
+            } else if (Files.exists(path) && Files.size(path) != validLength) {
+                plugin.getLogger().warning(fileName + " ends in an incomplete record, discarding it.");
+                try (FileChannel truncating = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    truncating.truncate(validLength);
+                }
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (validLength == 0) {
+                writeHeader(channel);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not load " + fileName + "!");
+            e.printStackTrace();
+        }
+        if (needsCompaction()) {
+            writer.execute(this::compact);
+        }
+    }
+
+    /**
+     * Replays the log into memory without opening, truncating or compacting it.
+     * Nothing appended afterwards reaches disk.
+     */
+    public void loadReadOnly() {
+        try {
+            if (Files.exists(path) && replay(Files.readAllBytes(path)) < 0) {
+                plugin.getLogger().severe(fileName + " is not a membership log this version can read!");
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not load " + fileName + "!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Records a player joining a civilisation. Safe to call from any thread.
+     */
+    public void appendJoin(UUID uuid, String name, String civilisation) {
+        members.put(uuid, new Member(name, civilisation));
+        legacyMembers.remove(name);
+        append(encode(out -> {
+            out.writeByte(JOIN);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+            out.writeUTF(name);
+            out.writeUTF(civilisation);
+        }));
+    }
+
+    /**
+     * Records a player leaving their civilisation. Safe to call from any thread.
+     */
+    public void appendLeave(UUID uuid) {
+        if (members.remove(uuid) == null) return;
+        append(encode(out -> {
+            out.writeByte(LEAVE);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }));
+    }
+
+    /**
+     * Records a legacy name entry. Safe to call from any thread.
+     */
+    public void appendLegacy(String name, String civilisation) {
+        legacyMembers.put(name, civilisation);
+        append(encodeLegacy(name, civilisation));
+    }
+
+    /**
+     * Gets the members known by UUID. The returned view is live.
+     */
+    public Map<UUID, Member> getMembers() {
+        return Collections.unmodifiableMap(members);
+    }
+
+    /**
+     * Gets the legacy name entries, mapped to their civilisation. The returned view is live.
+     */
+    public Map<String, String> getLegacyMembers() {
+        return Collections.unmodifiableMap(legacyMembers);
+    }
+
+    /**
+     * Waits until every queued record has reached disk.
+     *
+     * @return false if the writer failed or timed out.
+     */
+    public boolean flush() {
+        try {
+            writer.submit(() -> {
+                if (channel != null) channel.force(false);
+                return null;
+            }).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            plugin.getLogger().severe("Timed out waiting for " + fileName + " to be written!");
+            return false;
+        }
+    }
+
+    /**
+     * Flushes queued records, closes the log and stops the writer thread.
+     */
+    public void shutdown() {
+        flush();
+        writer.execute(() -> {
+            try {
+                if (channel != null) channel.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not close " + fileName + ".");
+            }
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the log file, e.g. to retire it once its contents have been imported elsewhere.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Applies every complete record in the data to the in-memory maps.
+     *
+     * @return the length of the valid part of the data, or -1 if the header isn't recognised.
+     */
+    private long replay(byte[] data) throws IOException {
+        if (data.length < HEADER_SIZE) return 0;
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            return -1;
+        }
+
+        long validLength = HEADER_SIZE;
+        try {
+            while (in.available() > 0) {
+                byte type = in.readByte();
+                switch (type) {
+                    case JOIN -> {
+                        UUID uuid = new UUID(in.readLong(), in.readLong());
+                        String name = in.readUTF();
+                        members.put(uuid, new Member(name, in.readUTF()));
+                        legacyMembers.remove(name);
+                    }
+                    case LEAVE -> members.remove(new UUID(in.readLong(), in.readLong()));
+                    case LEGACY -> {
+                        String name = in.readUTF();
+                        legacyMembers.put(name, in.readUTF());
+                    }
+                    default -> throw new EOFException("Unknown record type " + type);
+                }
+                records++;
+                validLength = data.length - in.available();
+            }
+        } catch (EOFException | UTFDataFormatException ignored) {
+            // Torn final record, everything before it is kept
+        }
+        return validLength;
+    }
+
+    private void append(byte[] record) {
+        appends.increment();
+        writer.execute(() -> {
+            if (channel == null) return;
+            long start = System.nanoTime();
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                records++;
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not append to " + fileName + "!");
+                e.printStackTrace();
+            } finally {
+                appendTimer.recordSince(start);
+            }
+            if (needsCompaction()) {
+                compact();
+            }
+        });
+    }
+
+    private boolean needsCompaction() {
+        return records > COMPACT_MIN_RECORDS && records > 2 * (members.size() + legacyMembers.size());
+    }
+
+    /**
+     * Rewrites the log with one record per live entry, on the writer thread.
+     * Records appended while the snapshot is taken may be written twice, which replays the same.
+     */
+    private void compact() {
+        long start = System.nanoTime();
+        Path temp = path.resolveSibling(fileName + ".tmp");
+        int written = 0;
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                for (Map.Entry<UUID, Member> entry : members.entrySet()) {
+                    out.writeByte(JOIN);
+                    out.writeLong(entry.getKey().getMostSignificantBits());
+                    out.writeLong(entry.getKey().getLeastSignificantBits());
+                    out.writeUTF(entry.getValue().name());
+                    out.writeUTF(entry.getValue().civilisation());
+                    written++;
+                }
+                for (Map.Entry<String, String> entry : legacyMembers.entrySet()) {
+                    out.write(encodeLegacy(entry.getKey(), entry.getValue()));
+                    written++;
+                }
+            }
+            if (channel != null) channel.close();
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            records = written;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not compact " + fileName + "!");
+            e.printStackTrace();
+            if (channel != null && channel.isOpen()) return;
+            try {
+                // Keep appending to whichever file is now in place
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            } catch (IOException reopen) {
+                channel = null;
+                plugin.getLogger().severe("Could not reopen " + fileName + ", membership changes will not be saved!");
+            }
+        } finally {
+            compactTimer.recordSince(start);
+        }
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).put(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    private static byte[] encodeLegacy(String name, String civilisation) {
+        return encode(out -> {
+            out.writeByte(LEGACY);
+            out.writeUTF(name);
+            out.writeUTF(civilisation);
+        });
+    }
+
+    private static byte[] encode(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Writing to memory can't fail
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,64 @@
+package me.barnaby.civilisation.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage that serves reads from another storage and refuses every membership write.
+ * Used when the real storage can't be opened and the only memberships left are an old copy,
+ * so changes made now can't be lost when the real storage comes back. Reports are still kept.
+ */
+public class ReadOnlyStorage implements Storage {
+    private final Storage delegate;
+
+    public ReadOnlyStorage(Storage delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public CompletableFuture<StoredMemberships> loadMemberships() {
+        return delegate.loadMemberships();
+    }
+
+    @Override
+    public CompletableFuture<Void> saveMember(UUID uuid, String name, String civilisation) {
+        return refused();
+    }
+
+    @Override
+    public CompletableFuture<Void> removeMember(UUID uuid) {
+        return refused();
+    }
+
+    @Override
+    public CompletableFuture<Void> saveLegacyMembers(Map<String, String> legacyMembers) {
+        return refused();
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, String>> getMembers(String civilisation) {
+        return delegate.getMembers(civilisation);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveReport(Report report) {
+        return delegate.saveReport(report);
+    }
+
+    @Override
+    public CompletableFuture<List<Report>> getReportsAbout(String targetName, int limit) {
+        return delegate.getReportsAbout(targetName, limit);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private static CompletableFuture<Void> refused() {
+        return CompletableFuture.failedFuture(new IOException("Memberships are read-only until the database can be opened"));
+    }
+}
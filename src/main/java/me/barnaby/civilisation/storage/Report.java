@@ -0,0 +1,20 @@
+package me.barnaby.civilisation.storage;
+
+import java.util.UUID;
+
+/**
+ * A report or notification sent to staff.
+ *
+ * @param target     the reported player, or null for server reports and notifications.
+ * @param targetName the reported player's name, or null for server reports and notifications.
+ * @param createdAt  when it was sent, in epoch milliseconds.
+ */
+public record Report(Type type, UUID reporter, String reporterName, UUID target, String targetName,
+                     String message, long createdAt) {
+
+    public enum Type {
+        PLAYER,
+        SERVER,
+        NOTIFY
+    }
+}
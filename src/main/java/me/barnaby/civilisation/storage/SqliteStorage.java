@@ -0,0 +1,357 @@
+package me.barnaby.civilisation.storage;
+
+import me.barnaby.civilisation.metrics.LatencyHistogram;
+import me.barnaby.civilisation.metrics.MetricsRegistry;
+import me.barnaby.civilisation.storage.StoredMemberships.Member;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Storage in an embedded SQLite database, civilisation.db, using the driver bundled with the server.
+ * <p>
+ * Writes are queued and run by a single writer thread, which drains the queue into batched prepared
+ * statements and commits each drain as one transaction. Queries run on a small pool of reader threads,
+ * each with its own connection; the database is in WAL mode, so readers and the writer don't block each other.
+ * </p>
+ */
+public class SqliteStorage implements Storage {
+    private static final String FILE_NAME = "civilisation.db";
+    private static final long CLOSE_TIMEOUT_SECONDS = 10L;
+
+    private static final String[] SCHEMA = {
+            "PRAGMA journal_mode = WAL",
+            "CREATE TABLE IF NOT EXISTS members (uuid TEXT PRIMARY KEY, name TEXT NOT NULL, civilisation TEXT NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS members_civilisation ON members (civilisation)",
+            "CREATE TABLE IF NOT EXISTS legacy_members (name TEXT PRIMARY KEY, civilisation TEXT NOT NULL)",
+            // A member seen by UUID replaces their legacy name entry, within the same statement
+            "CREATE TRIGGER IF NOT EXISTS members_insert_legacy AFTER INSERT ON members"
+                    + " BEGIN DELETE FROM legacy_members WHERE name = NEW.name; END",
+            "CREATE TRIGGER IF NOT EXISTS members_update_legacy AFTER UPDATE OF name ON members"
+                    + " BEGIN DELETE FROM legacy_members WHERE name = NEW.name; END",
+            "CREATE TABLE IF NOT EXISTS reports (id INTEGER PRIMARY KEY AUTOINCREMENT, type TEXT NOT NULL,"
+                    + " reporter TEXT NOT NULL, reporter_name TEXT NOT NULL, target TEXT, target_name TEXT COLLATE NOCASE,"
+                    + " message TEXT NOT NULL, created_at INTEGER NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS reports_target ON reports (target_name, created_at)"
+    };
+
+    private static final String UPSERT_MEMBER = "INSERT INTO members (uuid, name, civilisation) VALUES (?, ?, ?)"
+            + " ON CONFLICT (uuid) DO UPDATE SET name = excluded.name, civilisation = excluded.civilisation";
+    private static final String DELETE_MEMBER = "DELETE FROM members WHERE uuid = ?";
+    private static final String UPSERT_LEGACY_MEMBER = "INSERT OR REPLACE INTO legacy_members (name, civilisation) VALUES (?, ?)";
+    private static final String INSERT_REPORT = "INSERT INTO reports"
+            + " (type, reporter, reporter_name, target, target_name, message, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * A queued statement and its parameters, completed once the batch it runs in is committed.
+     */
+    private record Write(String sql, Object[] params, CompletableFuture<Void> future) {
+    }
+
+    @FunctionalInterface
+    private interface Query<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    private final Plugin plugin;
+    private final String url;
+    private final Queue<Write> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile boolean closed;
+    private final ExecutorService writer;
+    private final ExecutorService readers;
+    // Each storage thread keeps one connection; all of them are closed together
+    private final ThreadLocal<Connection> connections = new ThreadLocal<>();
+    private final List<Connection> openConnections = new CopyOnWriteArrayList<>();
+    // Prepared statements of the writer connection, only touched on the writer thread
+    private final Map<String, PreparedStatement> writeStatements = new HashMap<>();
+    private final LongAdder writes;
+    private final LatencyHistogram batchTimer;
+    private final LatencyHistogram queryTimer;
+
+    /**
+     * Opens the database and creates any missing tables.
+     *
+     * @param readerThreads the number of threads (and connections) serving queries.
+     * @throws SQLException if the driver is missing or the database can't be opened.
+     */
+    public SqliteStorage(Plugin plugin, MetricsRegistry metrics, int readerThreads) throws SQLException {
+        this.plugin = plugin;
+        this.url = "jdbc:sqlite:" + new File(plugin.getDataFolder(), FILE_NAME).getAbsolutePath();
+        this.writes = metrics.counter("storage.writes");
+        this.batchTimer = metrics.timer("storage.batch");
+        this.queryTimer = metrics.timer("storage.query");
+
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("The SQLite driver is not available", e);
+        }
+        plugin.getDataFolder().mkdirs();
+
+        this.writer = Executors.newSingleThreadExecutor(threadFactory("Civilisation-StorageWriter"));
+        this.readers = Executors.newFixedThreadPool(Math.max(1, readerThreads), threadFactory("Civilisation-StorageReader"));
+
+        // Create the schema up front, so a database that can't be opened fails here rather than on first use
+        try {
+            writer.submit(() -> {
+                Connection connection = connection();
+                try (Statement statement = connection.createStatement()) {
+                    for (String sql : SCHEMA) {
+                        statement.execute(sql);
+                    }
+                }
+                connection.setAutoCommit(false);
+                return null;
+            }).get(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new SQLException("Interrupted while opening " + FILE_NAME, e);
+        } catch (ExecutionException | TimeoutException e) {
+            close();
+            throw e.getCause() instanceof SQLException sqlException ? sqlException : new SQLException("Could not open " + FILE_NAME, e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<StoredMemberships> loadMemberships() {
+        return query(connection -> {
+            Map<UUID, Member> members = new HashMap<>();
+            Map<String, String> legacyMembers = new HashMap<>();
+            try (Statement statement = connection.createStatement()) {
+                try (ResultSet rows = statement.executeQuery("SELECT uuid, name, civilisation FROM members")) {
+                    while (rows.next()) {
+                        members.put(UUID.fromString(rows.getString(1)), new Member(rows.getString(2), rows.getString(3)));
+                    }
+                }
+                try (ResultSet rows = statement.executeQuery("SELECT name, civilisation FROM legacy_members")) {
+                    while (rows.next()) {
+                        legacyMembers.put(rows.getString(1), rows.getString(2));
+                    }
+                }
+            }
+            return new StoredMemberships(members, legacyMembers);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveMember(UUID uuid, String name, String civilisation) {
+        return enqueue(UPSERT_MEMBER, uuid.toString(), name, civilisation);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeMember(UUID uuid) {
+        return enqueue(DELETE_MEMBER, uuid.toString());
+    }
+
+    @Override
+    public CompletableFuture<Void> saveLegacyMembers(Map<String, String> legacyMembers) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        legacyMembers.forEach((name, civilisation) -> futures.add(enqueue(UPSERT_LEGACY_MEMBER, name, civilisation)));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, String>> getMembers(String civilisation) {
+        return query(connection -> {
+            Map<UUID, String> members = new LinkedHashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, name FROM members WHERE civilisation = ? ORDER BY name COLLATE NOCASE")) {
+                statement.setString(1, civilisation);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        members.put(UUID.fromString(rows.getString(1)), rows.getString(2));
+                    }
+                }
+            }
+            return members;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveReport(Report report) {
+        return enqueue(INSERT_REPORT, report.type().name(), report.reporter().toString(), report.reporterName(),
+                report.target() == null ? null : report.target().toString(), report.targetName(),
+                report.message(), report.createdAt());
+    }
+
+    @Override
+    public CompletableFuture<List<Report>> getReportsAbout(String targetName, int limit) {
+        return query(connection -> {
+            List<Report> reports = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT type, reporter, reporter_name, target, target_name, message, created_at FROM reports"
+                            + " WHERE target_name = ? ORDER BY created_at DESC LIMIT ?")) {
+                statement.setString(1, targetName);
+                statement.setInt(2, limit);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        String target = rows.getString(4);
+                        reports.add(new Report(Report.Type.valueOf(rows.getString(1)), UUID.fromString(rows.getString(2)),
+                                rows.getString(3), target == null ? null : UUID.fromString(target), rows.getString(5),
+                                rows.getString(6), rows.getLong(7)));
+                    }
+                }
+            }
+            return reports;
+        });
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.execute(this::drain);
+        } catch (RejectedExecutionException ignored) {
+            // Already closed
+        }
+        writer.shutdown();
+        readers.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().severe("Timed out waiting for " + FILE_NAME + " to be written!");
+            }
+            readers.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Nothing drains the queue any more, so fail whatever is left in it
+        closed = true;
+        failPending();
+        for (Connection connection : openConnections) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Closing anyway
+            }
+        }
+        openConnections.clear();
+    }
+
+    /**
+     * Queues a write, scheduling a drain of the queue unless one is already pending.
+     */
+    private CompletableFuture<Void> enqueue(String sql, Object... params) {
+        Write write = new Write(sql, params, new CompletableFuture<>());
+        pending.add(write);
+        writes.increment();
+        if (closed) {
+            failPending();
+        } else if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                writer.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                failPending();
+            }
+        }
+        return write.future();
+    }
+
+    /**
+     * Fails every queued write once the writer has stopped.
+     */
+    private void failPending() {
+        Write write;
+        while ((write = pending.poll()) != null) {
+            write.future().completeExceptionally(new SQLException(FILE_NAME + " is closed"));
+        }
+    }
+
+    /**
+     * Runs every queued write in one transaction, batching consecutive writes of the same statement.
+     */
+    private void drain() {
+        drainScheduled.set(false);
+        List<Write> batch = new ArrayList<>();
+        Write next;
+        while ((next = pending.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) return;
+
+        long start = System.nanoTime();
+        Connection connection = null;
+        try {
+            connection = connection();
+            PreparedStatement statement = null;
+            String sql = null;
+            for (Write write : batch) {
+                if (!write.sql().equals(sql)) {
+                    if (statement != null) statement.executeBatch();
+                    sql = write.sql();
+                    statement = writeStatements.get(sql);
+                    if (statement == null) {
+                        statement = connection.prepareStatement(sql);
+                        writeStatements.put(sql, statement);
+                    }
+                }
+                for (int i = 0; i < write.params().length; i++) {
+                    statement.setObject(i + 1, write.params()[i]);
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+            batch.forEach(write -> write.future().complete(null));
+        } catch (SQLException | RuntimeException e) {
+            plugin.getLogger().severe("Could not write " + batch.size() + " change(s) to " + FILE_NAME + "!");
+            e.printStackTrace();
+            try {
+                for (PreparedStatement statement : writeStatements.values()) {
+                    statement.clearBatch();
+                }
+                if (connection != null) connection.rollback();
+            } catch (SQLException ignored) {
+                // The transaction is abandoned either way
+            }
+            batch.forEach(write -> write.future().completeExceptionally(e));
+        } finally {
+            batchTimer.recordSince(start);
+        }
+    }
+
+    private <T> CompletableFuture<T> query(Query<T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return query.run(connection());
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                queryTimer.recordSince(start);
+            }
+        }, readers);
+    }
+
+    /**
+     * Gets the calling storage thread's connection, opening it on first use.
+     */
+    private Connection connection() throws SQLException {
+        Connection connection = connections.get();
+        if (connection == null) {
+            connection = DriverManager.getConnection(url);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA busy_timeout = 5000");
+                statement.execute("PRAGMA synchronous = NORMAL");
+            }
+            connections.set(connection);
+            openConnections.add(connection);
+        }
+        return connection;
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package me.barnaby.civilisation.storage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Persistent storage for memberships and reports.
+ * <p>
+ * Every method returns immediately and does its work off the main thread. Futures complete on a
+ * storage thread, so callers that touch the Bukkit API must hop back to the main thread first.
+ * Writes may be queued and batched; they are all written by the time {@link #close()} returns.
+ * </p>
+ */
+public interface Storage {
+
+    /**
+     * Loads every membership, for the in-memory index.
+     */
+    CompletableFuture<StoredMemberships> loadMemberships();
+
+    /**
+     * Records a player as a member of a civilisation, replacing any legacy entry for their name.
+     */
+    CompletableFuture<Void> saveMember(UUID uuid, String name, String civilisation);
+
+    /**
+     * Removes a player from their civilisation.
+     */
+    CompletableFuture<Void> removeMember(UUID uuid);
+
+    /**
+     * Records legacy name entries, mapped to their civilisation. The future completes once they are durable.
+     */
+    CompletableFuture<Void> saveLegacyMembers(Map<String, String> legacyMembers);
+
+    /**
+     * Gets the members of a civilisation known by UUID, mapped to their last known name and ordered by it.
+     */
+    CompletableFuture<Map<UUID, String>> getMembers(String civilisation);
+
+    /**
+     * Records a report or notification.
+     */
+    CompletableFuture<Void> saveReport(Report report);
+
+    /**
+     * Gets the most recent reports about a player, newest first.
+     *
+     * @param targetName the reported player's name, matched case-insensitively.
+     */
+    CompletableFuture<List<Report>> getReportsAbout(String targetName, int limit);
+
+    /**
+     * Writes anything still queued and releases the storage's threads and files.
+     */
+    void close();
+}
@@ -0,0 +1,19 @@
+package me.barnaby.civilisation.storage;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Every membership held by a {@link Storage}, as loaded at startup and on reload.
+ *
+ * @param members       members known by UUID.
+ * @param legacyMembers names from the old config player lists whose UUID hasn't been seen yet, mapped to their civilisation.
+ */
+public record StoredMemberships(Map<UUID, Member> members, Map<String, String> legacyMembers) {
+
+    /**
+     * A member known by UUID, with the name they were last seen under.
+     */
+    public record Member(String name, String civilisation) {
+    }
+}
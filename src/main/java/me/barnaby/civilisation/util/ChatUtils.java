@@ -1,19 +1,45 @@
 package me.barnaby.civilisation.util;
 
 import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.HoverEvent;
 import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.chat.hover.content.Text;
 import org.bukkit.entity.Player;
 
+/**
+ * Chat helpers. Components are built once per broadcast and the same tree is sent to every
+ * recipient, so anything returned here is shared and must not be modified after it is built.
+ */
 public class ChatUtils {
 
-    public static void sendClickableMessage(Player player, String message, ClickEvent clickEvent, HoverEvent hoverEvent) {
-        TextComponent textComponent = new net.md_5.bungee.api.chat.TextComponent(
-                ChatColor.translateAlternateColorCodes('&', message));
-        textComponent.setClickEvent(clickEvent);
-        textComponent.setHoverEvent(hoverEvent);
-        player.spigot().sendMessage(textComponent);
+    /**
+     * Builds a clickable line around a pre-built label, e.g. one from {@code ConfigManager.getComponents}.
+     * The label is wrapped rather than copied, so cached labels stay untouched.
+     */
+    public static BaseComponent[] clickable(BaseComponent[] label, ClickEvent clickEvent, HoverEvent hoverEvent) {
+        TextComponent line = new TextComponent(label);
+        line.setClickEvent(clickEvent);
+        line.setHoverEvent(hoverEvent);
+        return new BaseComponent[]{line};
+    }
+
+    /**
+     * Builds a line that runs a command when clicked and shows a pre-built tooltip.
+     */
+    public static BaseComponent[] commandLink(BaseComponent[] label, String command, BaseComponent[] hover) {
+        return clickable(label, new ClickEvent(ClickEvent.Action.RUN_COMMAND, command),
+                new HoverEvent(HoverEvent.Action.SHOW_TEXT, new Text(hover)));
+    }
+
+    /**
+     * Sends the same components to every recipient.
+     */
+    public static void send(Iterable<? extends Player> recipients, BaseComponent... components) {
+        for (Player recipient : recipients) {
+            recipient.spigot().sendMessage(components);
+        }
     }
 
     public static String format(String s) {
@@ -1,22 +1,88 @@
 package me.barnaby.civilisation.util;
 
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class StaffUtil {
 
+    public static final String NOTIFIED_PERMISSION = "civilisation.notified";
+    public static final String STAFF_PERMISSION = "civilisation.staff";
+
+    private static final List<String> TRACKED_PERMISSIONS = List.of(NOTIFIED_PERMISSION, STAFF_PERMISSION);
+
+    // Online holders of each tracked permission, only modified on the main thread
+    private static final Map<String, Set<Player>> holders = new HashMap<>();
+    // Immutable copies of the holder sets, republished whenever one changes
+    private static final Map<String, List<Player>> snapshots = new ConcurrentHashMap<>();
+
+    static {
+        for (String permission : TRACKED_PERMISSIONS) {
+            holders.put(permission, new LinkedHashSet<>());
+            snapshots.put(permission, List.of());
+        }
+    }
+
+    /**
+     * Primes the rosters with players already online and keeps them current
+     * whenever LuckPerms recalculates a user's permissions.
+     */
+    public static void register(Plugin plugin, LuckPerms luckPerms) {
+        Bukkit.getOnlinePlayers().forEach(StaffUtil::refresh);
+        luckPerms.getEventBus().subscribe(plugin, UserDataRecalculateEvent.class, event ->
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    Player player = Bukkit.getPlayer(event.getUser().getUniqueId());
+                    if (player != null) refresh(player);
+                }));
+    }
+
     /**
      * Retrieves a list of online players who have the permission "civilisation.notified".
      *
-     * @return a List of Player objects representing the online staff members who meet the permission criteria.
+     * @return an immutable List of Player objects representing the online staff members who meet the permission criteria.
      */
     public static List<Player> getOnlineStaff() {
-        List<Player> players = new ArrayList<>(Bukkit.getOnlinePlayers());
-        players.removeIf(player -> !player.hasPermission("civilisation.notified"));
-        return players;
+        return getOnlineWith(NOTIFIED_PERMISSION);
+    }
+
+    /**
+     * Retrieves the online players holding one of the tracked permissions.
+     *
+     * @return an immutable snapshot, or an empty list if the permission isn't tracked.
+     */
+    public static List<Player> getOnlineWith(String permission) {
+        return snapshots.getOrDefault(permission, List.of());
+    }
+
+    /**
+     * Re-checks a player's tracked permissions. Must be called on the main thread.
+     */
+    public static void refresh(Player player) {
+        for (String permission : TRACKED_PERMISSIONS) {
+            Set<Player> players = holders.get(permission);
+            boolean changed = player.isOnline() && player.hasPermission(permission)
+                    ? players.add(player)
+                    : players.remove(player);
+            if (changed) publish(permission);
+        }
+    }
+
+    /**
+     * Removes a player from every roster. Must be called on the main thread.
+     */
+    public static void remove(Player player) {
+        for (String permission : TRACKED_PERMISSIONS) {
+            if (holders.get(permission).remove(player)) publish(permission);
+        }
+    }
+
+    private static void publish(String permission) {
+        snapshots.put(permission, List.copyOf(holders.get(permission)));
     }
 
 }
@@ -0,0 +1,108 @@
+package me.barnaby.civilisation.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws items at random in proportion to their weights using Vose's alias method.
+ * The tables are built once in O(n); every draw afterwards is O(1) and allocation-free.
+ * Instances are immutable and safe to share between threads.
+ *
+ * @param <T> the item type
+ */
+public final class WeightedSampler<T> {
+    private static final WeightedSampler<?> EMPTY = new WeightedSampler<>(new Object[0], new double[0], new int[0]);
+
+    private final Object[] items;
+    private final double[] probability;
+    private final int[] alias;
+
+    private WeightedSampler(Object[] items, double[] probability, int[] alias) {
+        this.items = items;
+        this.probability = probability;
+        this.alias = alias;
+    }
+
+    /**
+     * Builds a sampler from parallel lists of items and weights.
+     * Items with a weight of zero or less can never be drawn.
+     */
+    public static <T> WeightedSampler<T> of(List<T> items, List<? extends Number> weights) {
+        if (items.size() != weights.size()) {
+            throw new IllegalArgumentException("Expected one weight per item");
+        }
+
+        int count = 0;
+        double total = 0;
+        for (Number weight : weights) {
+            if (weight.doubleValue() > 0) {
+                count++;
+                total += weight.doubleValue();
+            }
+        }
+        if (count == 0) {
+            return empty();
+        }
+
+        Object[] kept = new Object[count];
+        double[] scaled = new double[count];
+        int index = 0;
+        for (int i = 0; i < items.size(); i++) {
+            double weight = weights.get(i).doubleValue();
+            if (weight > 0) {
+                kept[index] = items.get(i);
+                scaled[index] = weight * count / total;
+                index++;
+            }
+        }
+
+        double[] probability = new double[count];
+        int[] alias = new int[count];
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < count; i++) {
+            (scaled[i] < 1.0 ? small : large).push(i);
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            (scaled[more] < 1.0 ? small : large).push(more);
+        }
+        // Whatever is left over is 1.0 give or take rounding error
+        while (!large.isEmpty()) probability[large.pop()] = 1.0;
+        while (!small.isEmpty()) probability[small.pop()] = 1.0;
+
+        return new WeightedSampler<>(kept, probability, alias);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> WeightedSampler<T> empty() {
+        return (WeightedSampler<T>) EMPTY;
+    }
+
+    /**
+     * Draws a random item.
+     *
+     * @return the drawn item, or null if the sampler has nothing to draw.
+     */
+    @SuppressWarnings("unchecked")
+    public T sample() {
+        if (items.length == 0) return null;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int column = random.nextInt(items.length);
+        return (T) (random.nextDouble() < probability[column] ? items[column] : items[alias[column]]);
+    }
+
+    public boolean isEmpty() {
+        return items.length == 0;
+    }
+
+    public int size() {
+        return items.length;
+    }
+}